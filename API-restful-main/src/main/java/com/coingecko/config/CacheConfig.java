@@ -1,29 +1,81 @@
 package com.coingecko.config;
 
+import com.coingecko.service.ReactiveCoinGeckoApiService;
+import com.coingecko.service.UpstreamRateLimiter;
+import com.coingecko.service.UpstreamRateLimiter.Priority;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
+
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CacheSpecProperties.class)
 public class CacheConfig {
     
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+    
     @Bean
-    public CacheManager cacheManager() {
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
+    public CacheManager cacheManager(CacheSpecProperties properties,
+                                     ObjectProvider<ReactiveCoinGeckoApiService> reactiveApiService) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         
-        // Configurar caches específicos
-        cacheManager.setCacheNames(java.util.Arrays.asList(
-            "cryptoData",
-            "marketData",
-            "coinGeckoApi"
-        ));
-        
-        // Permitir criação dinâmica de caches
+        // Modo assíncrono: necessário para @Cacheable em métodos que retornam Mono
+        cacheManager.setAsyncCacheMode(true);
         cacheManager.setAllowNullValues(false);
         
+        // Caches criados dinamicamente também ficam limitados
+        cacheManager.setCaffeine(builder(properties.getDefaults()));
+        
+        // Recarregamento antecipado: entradas antigas são renovadas em segundo plano
+        // enquanto o valor atual continua sendo servido, com a prioridade das atualizações
+        // agendadas para não competir com as consultas de usuários no limitador
+        Map<String, AsyncCacheLoader<Object, Object>> loaders = Map.of(
+            "cryptoData", (key, executor) -> reactiveApiService.getObject().fetchCryptoData((String) key)
+                    .contextWrite(UpstreamRateLimiter.withPriority(Priority.SCHEDULED))
+                    .toFuture()
+        );
+        
+        properties.getSpecs().forEach((name, spec) -> {
+            Caffeine<Object, Object> builder = builder(spec);
+            AsyncCacheLoader<Object, Object> loader = loaders.get(name);
+            
+            if (spec.getRefreshAfterWrite() != null && loader != null) {
+                builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+                cacheManager.registerCustomCache(name, builder.buildAsync(loader));
+            } else {
+                if (spec.getRefreshAfterWrite() != null) {
+                    logger.warn("Cache {} não possui loader; refresh-after-write ignorado", name);
+                }
+                cacheManager.registerCustomCache(name, builder.buildAsync());
+            }
+            logger.info("Cache {} configurado: máximo {} entradas, expira após escrita {}, após acesso {}, refresh {}",
+                    name, spec.getMaximumSize(), spec.getExpireAfterWrite(), spec.getExpireAfterAccess(),
+                    loader != null ? spec.getRefreshAfterWrite() : null);
+        });
+        
         return cacheManager;
     }
+    
+    private static Caffeine<Object, Object> builder(CacheSpecProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .recordStats();
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            builder.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        return builder;
+    }
 }
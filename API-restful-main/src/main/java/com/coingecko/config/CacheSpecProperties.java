@@ -0,0 +1,75 @@
+package com.coingecko.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limites e expiração de cada cache, lidos de {@code coingecko.cache} no application.yml.
+ * Caches sem entrada em {@code specs} usam {@code defaults}.
+ */
+@ConfigurationProperties(prefix = "coingecko.cache")
+public class CacheSpecProperties {
+    
+    private Spec defaults = new Spec();
+    
+    private Map<String, Spec> specs = new LinkedHashMap<>();
+    
+    public Spec getDefaults() {
+        return defaults;
+    }
+    
+    public void setDefaults(Spec defaults) {
+        this.defaults = defaults;
+    }
+    
+    public Map<String, Spec> getSpecs() {
+        return specs;
+    }
+    
+    public void setSpecs(Map<String, Spec> specs) {
+        this.specs = specs;
+    }
+    
+    public static class Spec {
+        
+        private long maximumSize = 500;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+        private Duration refreshAfterWrite;
+        
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+        
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+        
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+        
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+        
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+        
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+        
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+        
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+    }
+}
@@ -6,15 +6,19 @@ import com.coingecko.model.Transaction;
 import com.coingecko.repository.CryptoRepository;
 import com.coingecko.repository.PortfolioRepository;
 import com.coingecko.repository.TransactionRepository;
+import com.coingecko.service.PortfolioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+// Dados de exemplo só fora do perfil prod, que mantém os dados reais em arquivo
 @Component
+@Profile("!prod")
 public class DataInitializer implements CommandLineRunner {
     
     @Autowired
@@ -26,6 +30,9 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private TransactionRepository transactionRepository;
     
+    @Autowired
+    private PortfolioService portfolioService;
+    
     @Override
     public void run(String... args) throws Exception {
         // Criar criptomoedas de exemplo
@@ -139,6 +146,11 @@ public class DataInitializer implements CommandLineRunner {
             
             if (!transactions.isEmpty()) {
                 transactionRepository.saveAll(transactions);
+                
+                // Transações inseridas direto no repositório: montar as posições
+                for (Portfolio portfolio : portfolios) {
+                    portfolioService.rebuildPositions(portfolio.getId());
+                }
             }
         }
     }
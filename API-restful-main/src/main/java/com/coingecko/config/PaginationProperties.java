@@ -0,0 +1,42 @@
+package com.coingecko.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tamanho das páginas das listagens, lido de {@code api.pagination} no application.yml.
+ */
+@Component
+@ConfigurationProperties(prefix = "api.pagination")
+public class PaginationProperties {
+    
+    private int defaultSize = 50;
+    
+    private int maxSize = 500;
+    
+    /**
+     * Tamanho efetivo: o padrão quando não informado, limitado a {@code maxSize}.
+     */
+    public int resolve(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+    
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+    
+    public void setDefaultSize(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -1,15 +1,28 @@
 package com.coingecko.config;
 
+import com.coingecko.service.WebSocketFlowControl;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    @Autowired
+    private WebSocketProperties properties;
+    
+    @Autowired
+    private WebSocketFlowControl flowControl;
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Habilita um broker de mensagens simples para enviar mensagens para clientes
@@ -17,6 +30,13 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         
         // Define o prefixo para mensagens que vão para métodos anotados com @MessageMapping
         config.setApplicationDestinationPrefixes("/app");
+        
+        // Sem setPreservePublishOrder: a fila ordenada por sessão do Spring não tem limite e deixa
+        // só um envio em andamento, então os limites de buffer e tempo nunca seriam checados.
+        // Os deltas numerados são reordenados pelo cliente por seq (ver realtime-test.html)
+        
+        // Versiona as publicações dos destinos conflacionáveis (ver WebSocketFlowControl)
+        config.configureBrokerChannel().interceptors(flowControl.publishInterceptor());
     }
     
     @Override
@@ -30,4 +50,29 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws-native")
                 .setAllowedOriginPatterns("*");
     }
+    
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Sessão que acumula mais que o limite de buffer ou demora mais que o limite para
+        // receber um envio é desconectada, em vez de crescer a fila sem limite
+        registration.setSendBufferSizeLimit(properties.getSendBufferSizeLimit())
+                .setSendTimeLimit((int) properties.getSendTimeLimit().toMillis())
+                .setMessageSizeLimit(properties.getMessageSizeLimit())
+                .addDecoratorFactory(flowControl::decorate);
+    }
+    
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Pool e fila limitados; com a fila cheia o broker entrega na própria thread (contrapressão)
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getOutboundPoolSize());
+        executor.setMaxPoolSize(properties.getOutboundPoolSize());
+        executor.setQueueCapacity(properties.getOutboundQueueCapacity());
+        executor.setThreadNamePrefix("ws-outbound-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        flowControl.setOutboundExecutor(executor);
+        
+        registration.taskExecutor(executor);
+        registration.interceptors(flowControl);
+    }
 }
@@ -0,0 +1,92 @@
+package com.coingecko.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limites de envio do WebSocket, lidos de {@code coingecko.websocket} no application.yml.
+ */
+@Component
+@ConfigurationProperties(prefix = "coingecko.websocket")
+public class WebSocketProperties {
+    
+    /**
+     * Bytes pendentes por sessão antes de a sessão ser considerada lenta e desconectada.
+     */
+    private int sendBufferSizeLimit = 256 * 1024;
+    
+    /**
+     * Tempo máximo de um envio para a sessão antes de desconectá-la.
+     */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+    
+    /**
+     * Tamanho máximo de uma mensagem recebida do cliente.
+     */
+    private int messageSizeLimit = 64 * 1024;
+    
+    /**
+     * Threads e fila do canal de saída (broker -> sessões).
+     */
+    private int outboundPoolSize = 8;
+    
+    private int outboundQueueCapacity = 10_000;
+    
+    /**
+     * Destinos em que só o valor mais recente importa: ao sair da fila de saída, uma mensagem
+     * é descartada se já houve publicação mais nova no mesmo destino.
+     */
+    private List<String> conflateDestinations = new ArrayList<>(List.of("/topic/crypto/*", "/topic/portfolio/*"));
+    
+    public int getSendBufferSizeLimit() {
+        return sendBufferSizeLimit;
+    }
+    
+    public void setSendBufferSizeLimit(int sendBufferSizeLimit) {
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+    }
+    
+    public Duration getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+    
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+        this.sendTimeLimit = sendTimeLimit;
+    }
+    
+    public int getMessageSizeLimit() {
+        return messageSizeLimit;
+    }
+    
+    public void setMessageSizeLimit(int messageSizeLimit) {
+        this.messageSizeLimit = messageSizeLimit;
+    }
+    
+    public int getOutboundPoolSize() {
+        return outboundPoolSize;
+    }
+    
+    public void setOutboundPoolSize(int outboundPoolSize) {
+        this.outboundPoolSize = outboundPoolSize;
+    }
+    
+    public int getOutboundQueueCapacity() {
+        return outboundQueueCapacity;
+    }
+    
+    public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+    
+    public List<String> getConflateDestinations() {
+        return conflateDestinations;
+    }
+    
+    public void setConflateDestinations(List<String> conflateDestinations) {
+        this.conflateDestinations = conflateDestinations;
+    }
+}
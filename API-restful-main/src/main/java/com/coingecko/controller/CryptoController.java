@@ -1,5 +1,6 @@
 package com.coingecko.controller;
 
+import com.coingecko.dto.CursorPage;
 import com.coingecko.model.Crypto;
 import com.coingecko.service.CryptoService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -25,9 +26,11 @@ public class CryptoController {
     
     @GetMapping
     @Operation(summary = "Listar todas as criptomoedas", 
-               description = "Retorna uma lista com todas as criptomoedas cadastradas")
-    public ResponseEntity<List<Crypto>> getAllCryptos() {
-        List<Crypto> cryptos = cryptoService.findAll();
+               description = "Retorna as criptomoedas paginadas por cursor (ordem de id)")
+    public ResponseEntity<CursorPage<Crypto>> getAllCryptos(
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Crypto> cryptos = cryptoService.findPage(cursor, size);
         return ResponseEntity.ok(cryptos);
     }
     
@@ -0,0 +1,45 @@
+package com.coingecko.controller;
+
+import com.coingecko.dto.CryptoTick;
+import com.coingecko.service.MarketDeltaState;
+import com.coingecko.service.MarketDeltaState.Snapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Snapshot do mercado via STOMP.
+ * Uma inscrição em {@code /app/market/snapshot} recebe uma única resposta com o estado
+ * completo e a sequência atual; os deltas seguintes chegam em {@code /topic/market/deltas}.
+ * Para ressincronizar depois de um buraco na sequência, basta se inscrever de novo.
+ */
+@Controller
+public class MarketStreamController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MarketStreamController.class);
+    
+    @Autowired
+    private MarketDeltaState marketDeltaState;
+    
+    @SubscribeMapping("/market/snapshot")
+    public Map<String, Object> snapshot() {
+        Snapshot snapshot = marketDeltaState.snapshot();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("type", "market_snapshot");
+        response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        response.put("seq", snapshot.sequence());
+        response.put("fields", CryptoTick.FIELDS);
+        response.put("rows", snapshot.cryptos());
+        
+        logger.debug("Snapshot de mercado enviado: {} criptomoedas, sequência {}", snapshot.cryptos().size(), snapshot.sequence());
+        return response;
+    }
+}
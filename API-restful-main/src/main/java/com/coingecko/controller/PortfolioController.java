@@ -1,6 +1,8 @@
 package com.coingecko.controller;
 
+import com.coingecko.dto.CursorPage;
 import com.coingecko.model.Portfolio;
+import com.coingecko.service.CostBasisService;
 import com.coingecko.service.PortfolioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -23,11 +26,16 @@ public class PortfolioController {
     @Autowired
     private PortfolioService portfolioService;
     
+    @Autowired
+    private CostBasisService costBasisService;
+    
     @GetMapping
     @Operation(summary = "Listar todos os portfólios", 
-               description = "Retorna uma lista com todos os portfólios cadastrados")
-    public ResponseEntity<List<Portfolio>> getAllPortfolios() {
-        List<Portfolio> portfolios = portfolioService.findAll();
+               description = "Retorna os portfólios paginados por cursor (ordem de id)")
+    public ResponseEntity<CursorPage<Portfolio>> getAllPortfolios(
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Portfolio> portfolios = portfolioService.findPage(cursor, size);
         return ResponseEntity.ok(portfolios);
     }
     
@@ -164,6 +172,18 @@ public class PortfolioController {
         }
     }
     
+    @GetMapping("/{id}/pnl")
+    @Operation(summary = "Obter PnL do portfólio", 
+               description = "Retorna PnL realizado e não realizado e o custo médio por criptomoeda (lotes FIFO)")
+    public ResponseEntity<Map<String, Object>> getPnl(
+            @Parameter(description = "ID do portfólio") @PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(costBasisService.getPnl(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     @GetMapping("/count")
     @Operation(summary = "Contar portfólios", 
                description = "Retorna o número total de portfólios cadastrados")
@@ -2,14 +2,25 @@ package com.coingecko.controller;
 
 import com.coingecko.model.Crypto;
 import com.coingecko.service.RealTimeDataService;
-import com.coingecko.service.CoinGeckoApiService;
 import com.coingecko.service.CryptoService;
+import com.coingecko.service.MarketCrawlerService;
+import com.coingecko.service.PortfolioRevaluationService;
+import com.coingecko.service.ReactiveCoinGeckoApiService;
+import com.coingecko.service.RequestCoalescer;
+import com.coingecko.service.UpstreamRateLimiter;
+import com.coingecko.service.UpstreamRateLimiter.Priority;
 import com.coingecko.service.WebSocketService;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,7 +36,7 @@ public class RealTimeController {
     private RealTimeDataService realTimeDataService;
     
     @Autowired
-    private CoinGeckoApiService coinGeckoApiService;
+    private ReactiveCoinGeckoApiService reactiveApiService;
     
     @Autowired
     private CryptoService cryptoService;
@@ -33,27 +44,42 @@ public class RealTimeController {
     @Autowired
     private WebSocketService webSocketService;
     
+    @Autowired
+    private MarketCrawlerService marketCrawlerService;
+    
+    @Autowired
+    private UpstreamRateLimiter rateLimiter;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private PortfolioRevaluationService revaluationService;
+    
     @PostMapping("/start")
     @Operation(summary = "Iniciar atualizações em tempo real", 
                description = "Inicia as atualizações automáticas de dados a cada 30 segundos")
-    public ResponseEntity<Map<String, Object>> startRealTimeUpdates() {
-        Map<String, Object> response = new HashMap<>();
+    public Mono<ResponseEntity<Map<String, Object>>> startRealTimeUpdates() {
+        realTimeDataService.startRealTimeUpdates();
         
-        try {
-            realTimeDataService.startRealTimeUpdates();
-            realTimeDataService.syncInitialData();
-            
-            response.put("status", "success");
-            response.put("message", "Atualizações em tempo real iniciadas");
-            response.put("interval", "30 segundos");
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", "Erro ao iniciar atualizações: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
-        }
+        return realTimeDataService.syncInitialData()
+                .map(synced -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("status", "success");
+                    response.put("message", "Atualizações em tempo real iniciadas");
+                    response.put("interval", "30 segundos");
+                    response.put("synced", synced);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("status", "error");
+                    response.put("message", "Erro ao iniciar atualizações: " + e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                });
     }
     
     @PostMapping("/stop")
@@ -80,40 +106,83 @@ public class RealTimeController {
     @GetMapping("/status")
     @Operation(summary = "Status das atualizações em tempo real", 
                description = "Verifica se as atualizações em tempo real estão ativas")
-    public ResponseEntity<Map<String, Object>> getRealTimeStatus() {
-        Map<String, Object> response = new HashMap<>();
-        
+    public Mono<ResponseEntity<Map<String, Object>>> getRealTimeStatus() {
         boolean isRunning = realTimeDataService.isRealTimeUpdatesRunning();
-        boolean apiHealthy = coinGeckoApiService.isHealthy();
         
-        response.put("realTimeUpdates", isRunning);
-        response.put("apiHealthy", apiHealthy);
-        response.put("interval", "30 segundos");
-        response.put("websocketEndpoint", "/ws");
-        response.put("websocketTopic", "/topic/crypto-updates");
-        
-        return ResponseEntity.ok(response);
+        return reactiveApiService.isHealthy()
+                .map(apiHealthy -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("realTimeUpdates", isRunning);
+                    response.put("apiHealthy", apiHealthy);
+                    response.put("interval", "30 segundos");
+                    response.put("websocketEndpoint", "/ws");
+                    response.put("websocketTopic", "/topic/crypto-updates");
+                    response.put("websocketSymbolTopic", "/topic/crypto/{SYMBOL}");
+                    response.put("websocketPortfolioTopic", "/topic/portfolio/{id}");
+                    response.put("websocket", webSocketService.getStatus());
+                    response.put("crawler", marketCrawlerService.getStatus());
+                    response.put("rateLimiter", rateLimiter.getStatus());
+                    response.put("coalescing", requestCoalescer.getStatus());
+                    response.put("changeDetection", realTimeDataService.getChangeDetectionStatus());
+                    response.put("revaluation", revaluationService.getStatus());
+                    return ResponseEntity.ok(response);
+                })
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.DIAGNOSTIC));
+    }
+    
+    @GetMapping("/rate-limit")
+    @Operation(summary = "Cota da API CoinGecko", 
+               description = "Tokens disponíveis, fila por prioridade e contadores de 429 do limitador de requisições ao upstream")
+    public ResponseEntity<Map<String, Object>> getRateLimitStatus() {
+        return ResponseEntity.ok(rateLimiter.getStatus());
     }
     
     @PostMapping("/sync")
     @Operation(summary = "Sincronizar dados iniciais", 
                description = "Sincroniza os dados locais com a CoinGecko API")
-    public ResponseEntity<Map<String, Object>> syncInitialData() {
+    public Mono<ResponseEntity<Map<String, Object>>> syncInitialData() {
+        return realTimeDataService.syncInitialData()
+                .map(synced -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("status", "success");
+                    response.put("message", "Dados sincronizados com sucesso");
+                    response.put("synced", synced);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("status", "error");
+                    response.put("message", "Erro na sincronização: " + e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                });
+    }
+    
+    @PostMapping("/crawl")
+    @Operation(summary = "Varrer top criptomoedas por market cap", 
+               description = "Percorre em segundo plano as páginas de /coins/markets até o limite informado (além de 250), persistindo cada página ao chegar. Progresso em /api/realtime/status")
+    public ResponseEntity<Map<String, Object>> startCrawl(
+            @RequestParam(defaultValue = "1000") int limit) {
         Map<String, Object> response = new HashMap<>();
         
-        try {
-            realTimeDataService.syncInitialData();
-            
-            response.put("status", "success");
-            response.put("message", "Dados sincronizados com sucesso");
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("status", "error");
-            response.put("message", "Erro na sincronização: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
-        }
+        boolean started = marketCrawlerService.startCrawl(limit);
+        response.put("status", started ? "started" : "already_running");
+        response.put("crawler", marketCrawlerService.getStatus());
+        
+        return started
+            ? ResponseEntity.accepted().body(response)
+            : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    
+    @PostMapping("/crawl/cancel")
+    @Operation(summary = "Cancelar varredura", 
+               description = "Cancela a varredura de top criptomoedas em andamento")
+    public ResponseEntity<Map<String, Object>> cancelCrawl() {
+        marketCrawlerService.cancelCrawl();
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "success");
+        response.put("crawler", marketCrawlerService.getStatus());
+        return ResponseEntity.ok(response);
     }
     
     @PostMapping("/clear-cache")
@@ -137,88 +206,124 @@ public class RealTimeController {
         }
     }
     
-    @GetMapping("/api-health")
-    @Operation(summary = "Verificar saúde da API CoinGecko", 
-               description = "Verifica se a API CoinGecko está funcionando")
-    public ResponseEntity<Map<String, Object>> checkApiHealth() {
+    @GetMapping("/cache-stats")
+    @Operation(summary = "Estatísticas de cache", 
+               description = "Tamanho, acertos, falhas, recarregamentos e remoções de cada cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
         Map<String, Object> response = new HashMap<>();
         
-        boolean isHealthy = coinGeckoApiService.isHealthy();
-        
-        response.put("healthy", isHealthy);
-        response.put("apiUrl", "https://api.coingecko.com/api/v3");
-        response.put("message", isHealthy ? "API CoinGecko funcionando" : "API CoinGecko com problemas");
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            
+            CacheStats stats = caffeineCache.getNativeCache().stats();
+            Map<String, Object> cacheStats = new HashMap<>();
+            cacheStats.put("size", caffeineCache.getNativeCache().estimatedSize());
+            cacheStats.put("hits", stats.hitCount());
+            cacheStats.put("misses", stats.missCount());
+            cacheStats.put("hitRate", stats.hitRate());
+            cacheStats.put("loads", stats.loadSuccessCount());
+            cacheStats.put("loadFailures", stats.loadFailureCount());
+            cacheStats.put("evictions", stats.evictionCount());
+            response.put(name, cacheStats);
+        }
         
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/api-health")
+    @Operation(summary = "Verificar saúde da API CoinGecko", 
+               description = "Verifica se a API CoinGecko está funcionando")
+    public Mono<ResponseEntity<Map<String, Object>>> checkApiHealth() {
+        return reactiveApiService.isHealthy()
+                .map(isHealthy -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("healthy", isHealthy);
+                    response.put("apiUrl", "https://api.coingecko.com/api/v3");
+                    response.put("message", isHealthy ? "API CoinGecko funcionando" : "API CoinGecko com problemas");
+                    return ResponseEntity.ok(response);
+                })
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.DIAGNOSTIC));
+    }
+    
     @GetMapping("/test-api")
     @Operation(summary = "Testar API CoinGecko", 
                description = "Testa se conseguimos buscar dados da API CoinGecko. Retorna as criptomoedas suportadas (padrão: 35+ criptomoedas)")
-    public ResponseEntity<Map<String, Object>> testApi(
+    public Mono<ResponseEntity<Map<String, Object>>> testApi(
             @RequestParam(required = false) Integer limit,
             @RequestParam(required = false, defaultValue = "false") Boolean topOnly) {
         Map<String, Object> response = new HashMap<>();
         
-        try {
-            // Verificar saúde da API primeiro
-            boolean isHealthy = coinGeckoApiService.isHealthy();
-            response.put("apiHealthy", isHealthy);
-            
-            if (!isHealthy) {
-                response.put("success", false);
-                response.put("count", 0);
-                response.put("data", new ArrayList<>());
-                response.put("message", "API CoinGecko não está respondendo. Pode estar com rate limiting ou indisponível.");
-                response.put("suggestion", "Aguarde alguns minutos e tente novamente. A API CoinGecko tem limites de requisições.");
-                return ResponseEntity.ok(response);
-            }
-            
-            List<Crypto> marketData;
-            if (Boolean.TRUE.equals(topOnly)) {
-                // Buscar top N criptomoedas por market cap (sem especificar IDs)
-                int topLimit = limit != null ? limit : 50;
-                marketData = coinGeckoApiService.getTopMarketData(topLimit);
-                response.put("mode", "top_by_market_cap");
-            } else {
-                // Buscar criptomoedas da lista suportada
-                if (limit != null && limit > 0) {
-                    marketData = coinGeckoApiService.getMarketData(limit);
-                } else {
-                    marketData = coinGeckoApiService.getMarketData();
-                }
-                response.put("mode", "supported_coins");
-            }
-            
-            if (marketData == null || marketData.isEmpty()) {
-                response.put("success", true);
-                response.put("count", 0);
-                response.put("data", new ArrayList<>());
-                response.put("message", "API funcionando, mas nenhuma criptomoeda foi retornada. Pode ser rate limiting ou problema de conexão.");
-                response.put("suggestion", "Aguarde alguns minutos antes de tentar novamente. Muitas requisições podem ter excedido o limite da API.");
-                return ResponseEntity.ok(response);
-            }
-            
-            response.put("success", true);
-            response.put("count", marketData.size());
-            response.put("data", marketData);
-            response.put("message", "API funcionando - " + marketData.size() + " criptomoedas encontradas");
-            if (limit != null) {
-                response.put("requestedLimit", limit);
-            }
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
+        if (limit != null && limit < 1) {
             response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("count", 0);
-            response.put("data", new ArrayList<>());
-            response.put("message", "Erro ao testar API: " + e.getMessage());
-            response.put("suggestion", "Verifique sua conexão com a internet e aguarde alguns minutos antes de tentar novamente.");
-            
-            return ResponseEntity.badRequest().body(response);
+            response.put("message", "O parâmetro limit deve ser maior que zero");
+            return Mono.just(ResponseEntity.badRequest().body(response));
         }
+        
+        // Verificar saúde da API primeiro
+        return reactiveApiService.isHealthy()
+                .flatMap(isHealthy -> {
+                    response.put("apiHealthy", isHealthy);
+                    
+                    if (!isHealthy) {
+                        response.put("success", false);
+                        response.put("count", 0);
+                        response.put("data", new ArrayList<>());
+                        response.put("message", "API CoinGecko não está respondendo. Pode estar com rate limiting ou indisponível.");
+                        response.put("suggestion", "Aguarde alguns minutos e tente novamente. A API CoinGecko tem limites de requisições.");
+                        return Mono.just(ResponseEntity.ok(response));
+                    }
+                    
+                    Mono<List<Crypto>> marketData;
+                    if (Boolean.TRUE.equals(topOnly)) {
+                        // Buscar top N criptomoedas por market cap (sem especificar IDs)
+                        int topLimit = limit != null ? limit : 50;
+                        marketData = reactiveApiService.getTopMarketData(topLimit).collectList();
+                        response.put("mode", "top_by_market_cap");
+                    } else {
+                        // Buscar criptomoedas da lista suportada
+                        if (limit != null) {
+                            marketData = reactiveApiService.getMarketData(limit).collectList();
+                        } else {
+                            marketData = reactiveApiService.getMarketData().collectList();
+                        }
+                        response.put("mode", "supported_coins");
+                    }
+                    
+                    return marketData.map(cryptos -> {
+                        if (cryptos.isEmpty()) {
+                            response.put("success", true);
+                            response.put("count", 0);
+                            response.put("data", new ArrayList<>());
+                            response.put("message", "API funcionando, mas nenhuma criptomoeda foi retornada. Pode ser rate limiting ou problema de conexão.");
+                            response.put("suggestion", "Aguarde alguns minutos antes de tentar novamente. Muitas requisições podem ter excedido o limite da API.");
+                            return ResponseEntity.ok(response);
+                        }
+                        
+                        response.put("success", true);
+                        response.put("count", cryptos.size());
+                        response.put("data", cryptos);
+                        response.put("message", "API funcionando - " + cryptos.size() + " criptomoedas encontradas");
+                        if (limit != null) {
+                            response.put("requestedLimit", limit);
+                        }
+                        
+                        return ResponseEntity.ok(response);
+                    });
+                })
+                .onErrorResume(e -> {
+                    response.put("success", false);
+                    response.put("error", e.getMessage());
+                    response.put("count", 0);
+                    response.put("data", new ArrayList<>());
+                    response.put("message", "Erro ao testar API: " + e.getMessage());
+                    response.put("suggestion", "Verifique sua conexão com a internet e aguarde alguns minutos antes de tentar novamente.");
+                    
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                })
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.DIAGNOSTIC));
     }
     
     @PostMapping("/send-test-data")
@@ -237,21 +342,13 @@ public class RealTimeController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Enviar cada criptomoeda via WebSocket
-            int sentCount = 0;
-            for (Crypto crypto : cryptos) {
-                try {
-                    webSocketService.sendCryptoUpdate(crypto);
-                    sentCount++;
-                } catch (Exception e) {
-                    response.put("warning", "Erro ao enviar " + crypto.getName() + ": " + e.getMessage());
-                }
-            }
+            // Enviar todas as criptomoedas em um único frame market_tick
+            webSocketService.sendMarketTick(cryptos);
             
             response.put("success", true);
             response.put("count", cryptos.size());
-            response.put("sent", sentCount);
-            response.put("message", "Dados enviados via WebSocket: " + sentCount + "/" + cryptos.size() + " criptomoedas");
+            response.put("sent", cryptos.size());
+            response.put("message", "Dados enviados via WebSocket: " + cryptos.size() + " criptomoedas em um frame market_tick");
             
             return ResponseEntity.ok(response);
             
@@ -300,73 +397,69 @@ public class RealTimeController {
     @GetMapping("/simple-price")
     @Operation(summary = "Buscar preços simples", 
                description = "Busca preços simples de criptomoedas usando o endpoint /simple/price da CoinGecko. Formato mais compacto e rápido.")
-    public ResponseEntity<Map<String, Object>> getSimplePrice(
+    public Mono<ResponseEntity<Map<String, Object>>> getSimplePrice(
             @RequestParam(defaultValue = "bitcoin,ethereum,binancecoin,cardano,solana") String ids,
             @RequestParam(defaultValue = "usd") String vsCurrency) {
-        Map<String, Object> response = new HashMap<>();
-        
-        try {
-            Map<String, Object> simplePriceData = coinGeckoApiService.getSimplePrice(ids, vsCurrency);
-            
-            response.put("success", true);
-            response.put("data", simplePriceData);
-            response.put("count", simplePriceData.size());
-            response.put("message", "Preços simples obtidos com sucesso");
-            response.put("vs_currency", vsCurrency);
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
-            response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("message", "Erro ao buscar preços simples: " + e.getMessage());
-            
-            return ResponseEntity.badRequest().body(response);
-        }
+        return reactiveApiService.getSimplePrice(ids, vsCurrency)
+                .map(simplePriceData -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", simplePriceData);
+                    response.put("count", simplePriceData.size());
+                    response.put("message", "Preços simples obtidos com sucesso");
+                    response.put("vs_currency", vsCurrency);
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", e.getMessage());
+                    response.put("message", "Erro ao buscar preços simples: " + e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                });
     }
     
     @GetMapping("/search")
     @Operation(summary = "Buscar criptomoedas, NFTs e categorias", 
                description = "Busca criptomoedas, NFTs e categorias usando o endpoint /search da CoinGecko. Útil para buscar por nome ou símbolo.")
-    public ResponseEntity<Map<String, Object>> search(
+    public Mono<ResponseEntity<Map<String, Object>>> search(
             @RequestParam String query) {
-        Map<String, Object> response = new HashMap<>();
-        
-        try {
-            if (query == null || query.trim().isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Parâmetro 'query' é obrigatório");
-                return ResponseEntity.badRequest().body(response);
-            }
-            
-            Map<String, Object> searchResults = coinGeckoApiService.search(query);
-            
-            response.put("success", true);
-            response.put("data", searchResults);
-            response.put("query", query);
-            response.put("message", "Busca realizada com sucesso");
-            
-            int coinsCount = searchResults.containsKey("coins") ? 
-                ((List<?>) searchResults.get("coins")).size() : 0;
-            int nftsCount = searchResults.containsKey("nfts") ? 
-                ((List<?>) searchResults.get("nfts")).size() : 0;
-            int categoriesCount = searchResults.containsKey("categories") ? 
-                ((List<?>) searchResults.get("categories")).size() : 0;
-            
-            response.put("counts", Map.of(
-                "coins", coinsCount,
-                "nfts", nftsCount,
-                "categories", categoriesCount
-            ));
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (Exception e) {
+        if (query == null || query.trim().isEmpty()) {
+            Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("error", e.getMessage());
-            response.put("message", "Erro ao buscar: " + e.getMessage());
-            
-            return ResponseEntity.badRequest().body(response);
+            response.put("message", "Parâmetro 'query' é obrigatório");
+            return Mono.just(ResponseEntity.badRequest().body(response));
         }
+        
+        return reactiveApiService.search(query)
+                .map(searchResults -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", true);
+                    response.put("data", searchResults);
+                    response.put("query", query);
+                    response.put("message", "Busca realizada com sucesso");
+                    
+                    int coinsCount = searchResults.containsKey("coins") ? 
+                        ((List<?>) searchResults.get("coins")).size() : 0;
+                    int nftsCount = searchResults.containsKey("nfts") ? 
+                        ((List<?>) searchResults.get("nfts")).size() : 0;
+                    int categoriesCount = searchResults.containsKey("categories") ? 
+                        ((List<?>) searchResults.get("categories")).size() : 0;
+                    
+                    response.put("counts", Map.of(
+                        "coins", coinsCount,
+                        "nfts", nftsCount,
+                        "categories", categoriesCount
+                    ));
+                    
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("success", false);
+                    response.put("error", e.getMessage());
+                    response.put("message", "Erro ao buscar: " + e.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                });
     }
 }
@@ -1,19 +1,27 @@
 package com.coingecko.controller;
 
+import com.coingecko.dto.CursorPage;
+import com.coingecko.dto.TransactionFileFormat;
 import com.coingecko.model.Transaction;
+import com.coingecko.service.TransactionExportService;
+import com.coingecko.service.TransactionImportService;
 import com.coingecko.service.TransactionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -24,11 +32,19 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
     
+    @Autowired
+    private TransactionExportService transactionExportService;
+    
+    @Autowired
+    private TransactionImportService transactionImportService;
+    
     @GetMapping
     @Operation(summary = "Listar todas as transações", 
-               description = "Retorna uma lista com todas as transações cadastradas")
-    public ResponseEntity<List<Transaction>> getAllTransactions() {
-        List<Transaction> transactions = transactionService.findAll();
+               description = "Retorna as transações paginadas por cursor, mais recentes primeiro")
+    public ResponseEntity<CursorPage<Transaction>> getAllTransactions(
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPage(cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
@@ -44,90 +60,136 @@ public class TransactionController {
     
     @GetMapping("/portfolio/{portfolioId}")
     @Operation(summary = "Buscar transações por portfólio", 
-               description = "Retorna todas as transações de um portfólio específico")
-    public ResponseEntity<List<Transaction>> getTransactionsByPortfolio(
-            @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId) {
-        List<Transaction> transactions = transactionService.findByPortfolioId(portfolioId);
+               description = "Retorna as transações de um portfólio paginadas por cursor")
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByPortfolio(
+            @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByPortfolioId(portfolioId, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/crypto/{cryptoId}")
     @Operation(summary = "Buscar transações por criptomoeda", 
-               description = "Retorna todas as transações de uma criptomoeda específica")
-    public ResponseEntity<List<Transaction>> getTransactionsByCrypto(
-            @Parameter(description = "ID da criptomoeda") @PathVariable Long cryptoId) {
-        List<Transaction> transactions = transactionService.findByCryptoId(cryptoId);
+               description = "Retorna as transações de uma criptomoeda paginadas por cursor")
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByCrypto(
+            @Parameter(description = "ID da criptomoeda") @PathVariable Long cryptoId,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByCryptoId(cryptoId, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/type/{type}")
     @Operation(summary = "Buscar transações por tipo", 
-               description = "Retorna todas as transações de um tipo específico (BUY/SELL)")
-    public ResponseEntity<List<Transaction>> getTransactionsByType(
-            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type) {
-        List<Transaction> transactions = transactionService.findByType(type);
+               description = "Retorna as transações de um tipo (BUY/SELL) paginadas por cursor")
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByType(
+            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByType(type, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/portfolio/{portfolioId}/type/{type}")
     @Operation(summary = "Buscar transações por portfólio e tipo", 
                description = "Retorna transações de um portfólio específico e tipo")
-    public ResponseEntity<List<Transaction>> getTransactionsByPortfolioAndType(
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByPortfolioAndType(
             @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId,
-            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type) {
-        List<Transaction> transactions = transactionService.findByPortfolioIdAndType(portfolioId, type);
+            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByPortfolioIdAndType(portfolioId, type, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/crypto/{cryptoId}/type/{type}")
     @Operation(summary = "Buscar transações por criptomoeda e tipo", 
                description = "Retorna transações de uma criptomoeda específica e tipo")
-    public ResponseEntity<List<Transaction>> getTransactionsByCryptoAndType(
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByCryptoAndType(
             @Parameter(description = "ID da criptomoeda") @PathVariable Long cryptoId,
-            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type) {
-        List<Transaction> transactions = transactionService.findByCryptoIdAndType(cryptoId, type);
+            @Parameter(description = "Tipo da transação") @PathVariable Transaction.TransactionType type,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByCryptoIdAndType(cryptoId, type, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/portfolio/{portfolioId}/recent")
     @Operation(summary = "Buscar transações recentes por portfólio", 
                description = "Retorna transações de um portfólio ordenadas por data")
-    public ResponseEntity<List<Transaction>> getRecentTransactionsByPortfolio(
-            @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId) {
-        List<Transaction> transactions = transactionService.findByPortfolioIdOrderByDate(portfolioId);
+    public ResponseEntity<CursorPage<Transaction>> getRecentTransactionsByPortfolio(
+            @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByPortfolioId(portfolioId, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/crypto/{cryptoId}/recent")
     @Operation(summary = "Buscar transações recentes por criptomoeda", 
                description = "Retorna transações de uma criptomoeda ordenadas por data")
-    public ResponseEntity<List<Transaction>> getRecentTransactionsByCrypto(
-            @Parameter(description = "ID da criptomoeda") @PathVariable Long cryptoId) {
-        List<Transaction> transactions = transactionService.findByCryptoIdOrderByDate(cryptoId);
+    public ResponseEntity<CursorPage<Transaction>> getRecentTransactionsByCrypto(
+            @Parameter(description = "ID da criptomoeda") @PathVariable Long cryptoId,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByCryptoId(cryptoId, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/date-range")
     @Operation(summary = "Buscar transações por período", 
                description = "Retorna transações dentro de um período específico")
-    public ResponseEntity<List<Transaction>> getTransactionsByDateRange(
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByDateRange(
             @Parameter(description = "Data inicial") @RequestParam LocalDateTime startDate,
-            @Parameter(description = "Data final") @RequestParam LocalDateTime endDate) {
-        List<Transaction> transactions = transactionService.findByDateRange(startDate, endDate);
+            @Parameter(description = "Data final") @RequestParam LocalDateTime endDate,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByDateRange(startDate, endDate, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
     @GetMapping("/portfolio/{portfolioId}/date-range")
     @Operation(summary = "Buscar transações por portfólio e período", 
                description = "Retorna transações de um portfólio dentro de um período específico")
-    public ResponseEntity<List<Transaction>> getTransactionsByPortfolioAndDateRange(
+    public ResponseEntity<CursorPage<Transaction>> getTransactionsByPortfolioAndDateRange(
             @Parameter(description = "ID do portfólio") @PathVariable Long portfolioId,
             @Parameter(description = "Data inicial") @RequestParam LocalDateTime startDate,
-            @Parameter(description = "Data final") @RequestParam LocalDateTime endDate) {
-        List<Transaction> transactions = transactionService.findByPortfolioIdAndDateRange(portfolioId, startDate, endDate);
+            @Parameter(description = "Data final") @RequestParam LocalDateTime endDate,
+            @Parameter(description = "Cursor da página (nextCursor da resposta anterior)") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamanho da página") @RequestParam(required = false) Integer size) {
+        CursorPage<Transaction> transactions = transactionService.findPageByPortfolioIdAndDateRange(portfolioId, startDate, endDate, cursor, size);
         return ResponseEntity.ok(transactions);
     }
     
+    @GetMapping("/export")
+    @Operation(summary = "Exportar transações", 
+               description = "Exporta transações em NDJSON ou CSV, escritas conforme são lidas do banco. Filtros opcionais por portfólio e período")
+    public void exportTransactions(
+            @Parameter(description = "Formato: ndjson ou csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "ID do portfólio") @RequestParam(required = false) Long portfolioId,
+            @Parameter(description = "Data inicial") @RequestParam(required = false) LocalDateTime startDate,
+            @Parameter(description = "Data final") @RequestParam(required = false) LocalDateTime endDate,
+            HttpServletResponse response) throws IOException {
+        TransactionFileFormat exportFormat = TransactionFileFormat.parse(format);
+        
+        response.setContentType(exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions." + exportFormat.getExtension() + "\"");
+        transactionExportService.export(exportFormat, portfolioId, startDate, endDate, response.getOutputStream());
+    }
+    
+    @PostMapping("/import")
+    @Operation(summary = "Importar transações em massa", 
+               description = "Importa transações de um arquivo NDJSON ou CSV enviado no corpo da requisição (mesmas colunas da exportação). Linhas inválidas são ignoradas e relatadas")
+    public ResponseEntity<Map<String, Object>> importTransactions(
+            @Parameter(description = "Formato: ndjson ou csv") @RequestParam(defaultValue = "ndjson") String format,
+            HttpServletRequest request) throws IOException {
+        TransactionFileFormat importFormat = TransactionFileFormat.parse(format);
+        Map<String, Object> result = transactionImportService.importTransactions(importFormat, request.getInputStream());
+        return ResponseEntity.ok(result);
+    }
+    
     @PostMapping
     @Operation(summary = "Criar nova transação", 
                description = "Cria uma nova transação no sistema")
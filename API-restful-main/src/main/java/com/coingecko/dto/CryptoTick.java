@@ -0,0 +1,34 @@
+package com.coingecko.dto;
+
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Linha compacta de uma moeda em um frame {@code market_tick}.
+ * Serializada como array na ordem de {@link #FIELDS}, sem repetir os nomes dos campos.
+ * Os valores ficam na escala das colunas de {@link Crypto}, a mesma dos dados persistidos.
+ */
+@JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonPropertyOrder({"symbol", "name", "currentPrice", "marketCap", "volume24h", "change24h"})
+public record CryptoTick(String symbol, String name, BigDecimal currentPrice, BigDecimal marketCap,
+                         BigDecimal volume24h, BigDecimal change24h) {
+    
+    public static final List<String> FIELDS = List.of("symbol", "name", "currentPrice", "marketCap", "volume24h", "change24h");
+    
+    public static CryptoTick of(Crypto crypto) {
+        return new CryptoTick(crypto.getSymbol(), crypto.getName(),
+                scaled(crypto.getCurrentPrice(), Crypto.PRICE_SCALE),
+                scaled(crypto.getMarketCap(), Crypto.AMOUNT_SCALE),
+                scaled(crypto.getVolume24h(), Crypto.AMOUNT_SCALE),
+                scaled(crypto.getChange24h(), Crypto.CHANGE_SCALE));
+    }
+    
+    private static BigDecimal scaled(BigDecimal value, int scale) {
+        return value != null ? value.setScale(scale, RoundingMode.HALF_UP) : null;
+    }
+}
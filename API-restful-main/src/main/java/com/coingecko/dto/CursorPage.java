@@ -0,0 +1,24 @@
+package com.coingecko.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Uma página de resultados com paginação por cursor (keyset).
+ * {@code nextCursor} é opaco para o cliente e deve ser repassado no parâmetro
+ * {@code cursor} para obter a próxima página; vem null na última página.
+ */
+public record CursorPage<T>(List<T> items, int size, String nextCursor, boolean hasMore) {
+    
+    /**
+     * Monta a página a partir de uma consulta que buscou {@code size + 1} registros:
+     * o registro extra só indica que existe próxima página.
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int size, Function<T, PageCursor> cursorOf) {
+        if (fetched.size() <= size) {
+            return new CursorPage<>(fetched, size, null, false);
+        }
+        List<T> items = List.copyOf(fetched.subList(0, size));
+        return new CursorPage<>(items, size, cursorOf.apply(items.get(items.size() - 1)).encode(), true);
+    }
+}
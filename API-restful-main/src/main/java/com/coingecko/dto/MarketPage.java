@@ -0,0 +1,24 @@
+package com.coingecko.dto;
+
+import com.coingecko.model.Crypto;
+
+import java.util.List;
+
+/**
+ * Uma página de /coins/markets. Em caso de falha, {@code cryptos} vem vazia e
+ * {@code error} descreve o motivo.
+ */
+public record MarketPage(int page, List<Crypto> cryptos, String error) {
+    
+    public static MarketPage success(int page, List<Crypto> cryptos) {
+        return new MarketPage(page, cryptos, null);
+    }
+    
+    public static MarketPage failure(int page, String error) {
+        return new MarketPage(page, List.of(), error != null ? error : "Erro desconhecido");
+    }
+    
+    public boolean failed() {
+        return error != null;
+    }
+}
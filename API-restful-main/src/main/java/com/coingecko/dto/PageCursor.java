@@ -0,0 +1,62 @@
+package com.coingecko.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posição da última linha entregue: id e, para listagens por data, a data da transação.
+ * Serializado em Base64 (URL-safe) para que o cliente trate o cursor como opaco.
+ */
+public record PageCursor(LocalDateTime date, Long id) {
+    
+    // Início das listagens por data decrescente: posterior a qualquer transação
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    
+    public static PageCursor ofId(Long id) {
+        return new PageCursor(null, id);
+    }
+    
+    public static PageCursor ofDateAndId(LocalDateTime date, Long id) {
+        return new PageCursor(date, id);
+    }
+    
+    /**
+     * Cursor para listagens por id crescente; sem cursor começa antes do primeiro id.
+     */
+    public static PageCursor decodeAscendingId(String cursor) {
+        return cursor == null || cursor.isBlank() ? ofId(0L) : decode(cursor);
+    }
+    
+    /**
+     * Cursor para listagens por (data, id) decrescentes; sem cursor começa depois da última transação.
+     */
+    public static PageCursor decodeDescendingDate(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ofDateAndId(MAX_DATE, Long.MAX_VALUE);
+        }
+        PageCursor decoded = decode(cursor);
+        if (decoded.date() == null) {
+            throw new RuntimeException("Cursor inválido para esta listagem");
+        }
+        return decoded;
+    }
+    
+    public String encode() {
+        String raw = date != null ? date + "|" + id : String.valueOf(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                return ofId(Long.parseLong(raw));
+            }
+            return ofDateAndId(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor inválido: " + cursor);
+        }
+    }
+}
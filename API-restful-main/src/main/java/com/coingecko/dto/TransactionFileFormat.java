@@ -0,0 +1,35 @@
+package com.coingecko.dto;
+
+import java.util.Locale;
+
+/**
+ * Formatos de arquivo aceitos na exportação e importação de transações.
+ */
+public enum TransactionFileFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+    
+    private final String contentType;
+    private final String extension;
+    
+    TransactionFileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+    
+    public static TransactionFileFormat parse(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Formato inválido: " + format + " (use ndjson ou csv)");
+        }
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+}
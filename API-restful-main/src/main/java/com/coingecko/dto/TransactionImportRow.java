@@ -0,0 +1,16 @@
+package com.coingecko.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Uma linha do arquivo de importação de transações. Mesmas colunas da exportação;
+ * {@code id} e {@code symbol} são ignorados.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TransactionImportRow(Long portfolioId, Long cryptoId, String type, BigDecimal quantity,
+                                   BigDecimal pricePerUnit, BigDecimal totalValue,
+                                   LocalDateTime transactionDate, String notes) {
+}
@@ -0,0 +1,20 @@
+package com.coingecko.dto;
+
+import com.coingecko.model.Transaction;
+import com.coingecko.model.Transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projeção enxuta de uma transação para replay de custo médio, sem carregar
+ * portfólio e criptomoeda.
+ */
+public record TransactionRow(Long id, Long cryptoId, TransactionType type, BigDecimal quantity,
+                             BigDecimal pricePerUnit, LocalDateTime transactionDate) {
+    
+    public static TransactionRow of(Transaction transaction) {
+        return new TransactionRow(transaction.getId(), transaction.getCrypto().getId(), transaction.getType(),
+                transaction.getQuantity(), transaction.getPricePerUnit(), transaction.getTransactionDate());
+    }
+}
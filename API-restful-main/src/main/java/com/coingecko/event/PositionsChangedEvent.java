@@ -0,0 +1,8 @@
+package com.coingecko.event;
+
+/**
+ * Publicado quando as posições de um portfólio mudam (transação gravada, posições
+ * reconstruídas ou portfólio removido).
+ */
+public record PositionsChangedEvent(Long portfolioId) {
+}
@@ -0,0 +1,10 @@
+package com.coingecko.event;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Publicado quando preços de criptomoedas são gravados (cryptoId -> novo preço).
+ */
+public record PriceTickEvent(Map<Long, BigDecimal> prices) {
+}
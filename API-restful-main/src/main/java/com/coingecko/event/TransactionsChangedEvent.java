@@ -0,0 +1,19 @@
+package com.coingecko.event;
+
+import com.coingecko.dto.TransactionRow;
+
+/**
+ * Publicado quando o histórico de transações de um portfólio muda.
+ * {@code appended} é a transação nova quando ela apenas foi acrescentada ao histórico;
+ * null indica que o histórico foi reescrito (alteração, exclusão ou reconstrução).
+ */
+public record TransactionsChangedEvent(Long portfolioId, TransactionRow appended) {
+    
+    public static TransactionsChangedEvent appended(Long portfolioId, TransactionRow row) {
+        return new TransactionsChangedEvent(portfolioId, row);
+    }
+    
+    public static TransactionsChangedEvent rewritten(Long portfolioId) {
+        return new TransactionsChangedEvent(portfolioId, null);
+    }
+}
@@ -0,0 +1,27 @@
+package com.coingecko.exception;
+
+import java.time.Duration;
+
+/**
+ * Lançada quando uma chamada à API CoinGecko não pode ser feita dentro da cota:
+ * o upstream respondeu 429, a fila do limitador está cheia ou a espera excedeu o limite.
+ */
+public class UpstreamRateLimitedException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    private final boolean retryable;
+    
+    public UpstreamRateLimitedException(String message, Duration retryAfter, boolean retryable) {
+        super(message);
+        this.retryAfter = retryAfter;
+        this.retryable = retryable;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+    
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -11,8 +11,16 @@ import java.time.LocalDateTime;
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Crypto {
     
+    // Escalas das colunas numéricas: valores da API têm mais casas e são arredondados ao gravar
+    public static final int PRICE_SCALE = 8;
+    public static final int AMOUNT_SCALE = 2;
+    public static final int CHANGE_SCALE = 2;
+    
+    // Sequence com allocationSize > 1 usa o otimizador pooled: um único nextval reserva
+    // 50 ids, e o Hibernate pode agrupar os INSERTs em lotes (hibernate.jdbc.batch_size)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cryptos_seq")
+    @SequenceGenerator(name = "cryptos_seq", sequenceName = "cryptos_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Nome é obrigatório")
@@ -27,20 +35,20 @@ public class Crypto {
     
     @NotNull(message = "Preço atual é obrigatório")
     @DecimalMin(value = "0.0", inclusive = false, message = "Preço deve ser maior que zero")
-    @Column(nullable = false, precision = 20, scale = 8)
+    @Column(nullable = false, precision = 20, scale = PRICE_SCALE)
     private BigDecimal currentPrice;
     
     @DecimalMin(value = "0.0", message = "Capitalização de mercado deve ser não negativa")
-    @Column(precision = 20, scale = 2)
+    @Column(precision = 20, scale = AMOUNT_SCALE)
     private BigDecimal marketCap;
     
     @DecimalMin(value = "0.0", message = "Volume 24h deve ser não negativo")
-    @Column(precision = 20, scale = 2)
+    @Column(precision = 20, scale = AMOUNT_SCALE)
     private BigDecimal volume24h;
     
     @DecimalMin(value = "-100.0", message = "Variação 24h deve ser maior que -100%")
     @DecimalMax(value = "10000.0", message = "Variação 24h deve ser menor que 10000%")
-    @Column(precision = 5, scale = 2)
+    @Column(precision = 5, scale = CHANGE_SCALE)
     private BigDecimal change24h;
     
     @Column(length = 500)
@@ -14,7 +14,8 @@ import java.util.List;
 public class Portfolio {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolios_seq")
+    @SequenceGenerator(name = "portfolios_seq", sequenceName = "portfolios_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Nome do portfólio é obrigatório")
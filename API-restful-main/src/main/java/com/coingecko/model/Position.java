@@ -0,0 +1,96 @@
+package com.coingecko.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Quantidade líquida (compras - vendas) de uma criptomoeda em um portfólio.
+ * Mantida por delta a cada escrita de transação, para que o valor do portfólio
+ * não dependa de reler todo o histórico.
+ */
+@Entity
+@Table(name = "positions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"portfolio_id", "crypto_id"}))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class Position {
+    
+    @Id
+    // Incremento 1: a primeira posição de cada moeda é inserida via JDBC pelo PortfolioService
+    // com NEXT VALUE FOR, que com o otimizador pooled descartaria um bloco de 50 ids por insert
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "positions_id_seq")
+    @SequenceGenerator(name = "positions_id_seq", sequenceName = "positions_id_seq", allocationSize = 1)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    @JsonIgnoreProperties({"transactions", "hibernateLazyInitializer", "handler"})
+    private Portfolio portfolio;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "crypto_id", nullable = false)
+    private Crypto crypto;
+    
+    @Column(nullable = false, precision = 28, scale = 8)
+    private BigDecimal quantity;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Construtores
+    public Position() {}
+    
+    public Position(Portfolio portfolio, Crypto crypto, BigDecimal quantity) {
+        this.portfolio = portfolio;
+        this.crypto = crypto;
+        this.quantity = quantity;
+    }
+    
+    // Getters e Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Portfolio getPortfolio() {
+        return portfolio;
+    }
+    
+    public void setPortfolio(Portfolio portfolio) {
+        this.portfolio = portfolio;
+    }
+    
+    public Crypto getCrypto() {
+        return crypto;
+    }
+    
+    public void setCrypto(Crypto crypto) {
+        this.crypto = crypto;
+    }
+    
+    public BigDecimal getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(BigDecimal quantity) {
+        this.quantity = quantity;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
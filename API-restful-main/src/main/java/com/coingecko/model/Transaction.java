@@ -6,13 +6,25 @@ import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+// Índices compostos seguindo as consultas do TransactionRepository. As listagens paginadas
+// ordenam por (transaction_date, id), então essas colunas fecham os índices de filtro; os
+// índices com total_value/quantity cobrem as somas sem acessar a tabela.
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    @Index(name = "idx_transactions_date", columnList = "transaction_date, id"),
+    @Index(name = "idx_transactions_portfolio_date", columnList = "portfolio_id, transaction_date, id"),
+    @Index(name = "idx_transactions_portfolio_type_date", columnList = "portfolio_id, type, transaction_date, id"),
+    @Index(name = "idx_transactions_type_date", columnList = "type, transaction_date, id"),
+    @Index(name = "idx_transactions_crypto_date", columnList = "crypto_id, transaction_date, id"),
+    @Index(name = "idx_transactions_portfolio_type_value", columnList = "portfolio_id, type, total_value"),
+    @Index(name = "idx_transactions_crypto_type_quantity", columnList = "crypto_id, type, quantity")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Transaction {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "Portfólio é obrigatório")
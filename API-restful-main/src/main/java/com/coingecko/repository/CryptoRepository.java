@@ -1,12 +1,14 @@
 package com.coingecko.repository;
 
 import com.coingecko.model.Crypto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,7 +23,10 @@ public interface CryptoRepository extends JpaRepository<Crypto, Long> {
     
     List<Crypto> findBySymbolContainingIgnoreCase(String symbol);
     
-    List<Crypto> findBySymbolIn(List<String> symbols);
+    List<Crypto> findBySymbolIn(Collection<String> symbols);
+    
+    @Query("SELECT c.name FROM Crypto c WHERE c.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
     
     @Query("SELECT c FROM Crypto c WHERE c.currentPrice >= :minPrice AND c.currentPrice <= :maxPrice")
     List<Crypto> findByPriceRange(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
@@ -38,8 +43,25 @@ public interface CryptoRepository extends JpaRepository<Crypto, Long> {
     @Query("SELECT c FROM Crypto c ORDER BY c.change24h DESC")
     List<Crypto> findAllOrderByChange24hDesc();
     
+    /**
+     * Preço atual de todas as criptomoedas: [id, currentPrice].
+     */
+    @Query("SELECT c.id, c.currentPrice FROM Crypto c")
+    List<Object[]> findAllPrices();
+    
     boolean existsBySymbol(String symbol);
     
+    /**
+     * Ids que existem entre os informados (validação em lote).
+     */
+    @Query("SELECT c.id FROM Crypto c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
     boolean existsByName(String name);
+    
+    /**
+     * Paginação por keyset: próximos registros após o id informado (sem OFFSET).
+     */
+    List<Crypto> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
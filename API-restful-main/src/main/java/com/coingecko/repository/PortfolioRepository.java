@@ -1,11 +1,13 @@
 package com.coingecko.repository;
 
 import com.coingecko.model.Portfolio;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +30,17 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     @Query("SELECT p FROM Portfolio p ORDER BY p.createdAt DESC")
     List<Portfolio> findAllOrderByCreatedAtDesc();
     
+    /**
+     * Ids que existem entre os informados (validação em lote).
+     */
+    @Query("SELECT p.id FROM Portfolio p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+    
     boolean existsByName(String name);
+    
+    /**
+     * Paginação por keyset: próximos registros após o id informado (sem OFFSET).
+     */
+    List<Portfolio> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
 
@@ -0,0 +1,54 @@
+package com.coingecko.repository;
+
+import com.coingecko.model.Position;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface PositionRepository extends JpaRepository<Position, Long> {
+    
+    List<Position> findByPortfolioId(Long portfolioId);
+    
+    /**
+     * Soma {@code delta} à posição de forma atômica no banco. Um delta negativo só é aplicado
+     * se a posição continuar maior ou igual a zero.
+     * @return linhas afetadas (0 se a posição ainda não existe ou não tem quantidade suficiente)
+     */
+    @Modifying
+    @Query("UPDATE Position p SET p.quantity = p.quantity + :delta, p.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE p.portfolio.id = :portfolioId AND p.crypto.id = :cryptoId " +
+           "AND (:delta >= 0 OR p.quantity + :delta >= 0)")
+    int applyDelta(@Param("portfolioId") Long portfolioId,
+                   @Param("cryptoId") Long cryptoId,
+                   @Param("delta") BigDecimal delta);
+    
+    @Query("SELECT SUM(p.quantity * c.currentPrice) FROM Position p JOIN p.crypto c " +
+           "WHERE p.portfolio.id = :portfolioId AND p.quantity > 0")
+    BigDecimal getMarketValue(@Param("portfolioId") Long portfolioId);
+    
+    /**
+     * Posições abertas de todos os portfólios: [portfolioId, cryptoId, quantidade].
+     */
+    @Query("SELECT p.portfolio.id, p.crypto.id, p.quantity FROM Position p WHERE p.quantity > 0")
+    List<Object[]> findAllHoldings();
+    
+    /**
+     * Posições abertas de um portfólio: [cryptoId, quantidade].
+     */
+    @Query("SELECT p.crypto.id, p.quantity FROM Position p WHERE p.portfolio.id = :portfolioId AND p.quantity > 0")
+    List<Object[]> findHoldings(@Param("portfolioId") Long portfolioId);
+    
+    @Modifying
+    @Query("DELETE FROM Position p WHERE p.portfolio.id = :portfolioId")
+    int deleteByPortfolioId(@Param("portfolioId") Long portfolioId);
+    
+    @Modifying
+    @Query("DELETE FROM Position p WHERE p.crypto.id = :cryptoId")
+    int deleteByCryptoId(@Param("cryptoId") Long cryptoId);
+}
@@ -1,38 +1,65 @@
 package com.coingecko.repository;
 
+import com.coingecko.dto.TransactionRow;
 import com.coingecko.model.Transaction;
 import com.coingecko.model.Transaction.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
+    // As listagens são serializadas com portfólio e criptomoeda; o entity graph traz as duas
+    // associações no mesmo SELECT (JOIN) em vez de uma consulta extra por transação.
+    
+    @Override
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    List<Transaction> findAll();
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     List<Transaction> findByPortfolioId(Long portfolioId);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     List<Transaction> findByCryptoId(Long cryptoId);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     List<Transaction> findByType(TransactionType type);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     List<Transaction> findByPortfolioIdAndType(Long portfolioId, TransactionType type);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     List<Transaction> findByCryptoIdAndType(Long cryptoId, TransactionType type);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId ORDER BY t.transactionDate DESC")
     List<Transaction> findByPortfolioIdOrderByTransactionDateDesc(@Param("portfolioId") Long portfolioId);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     @Query("SELECT t FROM Transaction t WHERE t.crypto.id = :cryptoId ORDER BY t.transactionDate DESC")
     List<Transaction> findByCryptoIdOrderByTransactionDateDesc(@Param("cryptoId") Long cryptoId);
     
-    @Query("SELECT t FROM Transaction t WHERE t.transactionDate >= :startDate AND t.transactionDate <= :endDate")
+    // Filtro só por data: LEFT JOIN FETCH em vez do entity graph. Com INNER JOIN o H2 começa
+    // a junção pela tabela menor (cryptos) e percorre transactions pela FK, sem usar o índice
+    // de data; a junção externa mantém transactions como tabela de partida. As duas FKs são
+    // NOT NULL, então o resultado é o mesmo.
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.portfolio LEFT JOIN FETCH t.crypto " +
+           "WHERE t.transactionDate >= :startDate AND t.transactionDate <= :endDate")
     List<Transaction> findByTransactionDateBetween(@Param("startDate") LocalDateTime startDate, 
                                                  @Param("endDate") LocalDateTime endDate);
     
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
     @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId AND " +
            "t.transactionDate >= :startDate AND t.transactionDate <= :endDate")
     List<Transaction> findByPortfolioIdAndTransactionDateBetween(@Param("portfolioId") Long portfolioId,
@@ -50,5 +77,100 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     
     @Query("SELECT SUM(t.totalValue) FROM Transaction t WHERE t.portfolio.id = :portfolioId AND t.type = 'SELL'")
     java.math.BigDecimal getTotalSold(@Param("portfolioId") Long portfolioId);
+    
+    /**
+     * Quantidade líquida (compras - vendas) por criptomoeda: [cryptoId, quantidade].
+     */
+    @Query("SELECT t.crypto.id, SUM(CASE WHEN t.type = 'BUY' THEN t.quantity ELSE -t.quantity END) " +
+           "FROM Transaction t WHERE t.portfolio.id = :portfolioId GROUP BY t.crypto.id")
+    List<Object[]> getNetQuantitiesByCrypto(@Param("portfolioId") Long portfolioId);
+    
+    /**
+     * Histórico do portfólio em ordem cronológica (data, id), só com as colunas do replay FIFO.
+     */
+    @Query("SELECT new com.coingecko.dto.TransactionRow(t.id, t.crypto.id, t.type, t.quantity, t.pricePerUnit, t.transactionDate) " +
+           "FROM Transaction t WHERE t.portfolio.id = :portfolioId ORDER BY t.transactionDate ASC, t.id ASC")
+    List<TransactionRow> findRowsForCostBasis(@Param("portfolioId") Long portfolioId);
+    
+    // Paginação por keyset em (transactionDate, id) decrescentes: cada página busca a partir
+    // da última linha entregue, então páginas profundas custam o mesmo que a primeira.
+    // O Pageable só limita o número de linhas (sem OFFSET nem COUNT).
+    
+    // Sem outro filtro além da data: LEFT JOIN FETCH pelo mesmo motivo de findByTransactionDateBetween.
+    // O "transactionDate <= :date" redundante dá ao índice de data um limite de busca.
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.portfolio LEFT JOIN FETCH t.crypto " +
+           "WHERE t.transactionDate <= :date AND (t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) " +
+           "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPage(@Param("date") LocalDateTime date, @Param("id") Long id, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByPortfolioId(@Param("portfolioId") Long portfolioId,
+                                            @Param("date") LocalDateTime date, @Param("id") Long id,
+                                            Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    @Query("SELECT t FROM Transaction t WHERE t.crypto.id = :cryptoId AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByCryptoId(@Param("cryptoId") Long cryptoId,
+                                         @Param("date") LocalDateTime date, @Param("id") Long id,
+                                         Pageable pageable);
+    
+    // Só o tipo como filtro: mesmo tratamento de seekPage, com busca em idx_transactions_type_date.
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.portfolio LEFT JOIN FETCH t.crypto " +
+           "WHERE t.type = :type AND t.transactionDate <= :date AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByType(@Param("type") TransactionType type,
+                                     @Param("date") LocalDateTime date, @Param("id") Long id,
+                                     Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId AND t.type = :type AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByPortfolioIdAndType(@Param("portfolioId") Long portfolioId, @Param("type") TransactionType type,
+                                                   @Param("date") LocalDateTime date, @Param("id") Long id,
+                                                   Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    @Query("SELECT t FROM Transaction t WHERE t.crypto.id = :cryptoId AND t.type = :type AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByCryptoIdAndType(@Param("cryptoId") Long cryptoId, @Param("type") TransactionType type,
+                                                @Param("date") LocalDateTime date, @Param("id") Long id,
+                                                Pageable pageable);
+    
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.portfolio LEFT JOIN FETCH t.crypto " +
+           "WHERE t.transactionDate >= :startDate AND t.transactionDate <= :endDate AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByTransactionDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                       @Param("endDate") LocalDateTime endDate,
+                                                       @Param("date") LocalDateTime date, @Param("id") Long id,
+                                                       Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"portfolio", "crypto"})
+    @Query("SELECT t FROM Transaction t WHERE t.portfolio.id = :portfolioId AND " +
+           "t.transactionDate >= :startDate AND t.transactionDate <= :endDate AND " +
+           "(t.transactionDate < :date OR (t.transactionDate = :date AND t.id < :id)) ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> seekPageByPortfolioIdAndTransactionDateBetween(@Param("portfolioId") Long portfolioId,
+                                                                     @Param("startDate") LocalDateTime startDate,
+                                                                     @Param("endDate") LocalDateTime endDate,
+                                                                     @Param("date") LocalDateTime date, @Param("id") Long id,
+                                                                     Pageable pageable);
+    
+    /**
+     * Cursor somente-leitura para exportação. Filtros nulos são ignorados.
+     * O fetch size faz o driver buscar as linhas em blocos em vez de materializar o resultado;
+     * o Stream precisa ser consumido dentro de uma transação e fechado ao final.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.crypto WHERE " +
+           "(:portfolioId IS NULL OR t.portfolio.id = :portfolioId) AND " +
+           "(:startDate IS NULL OR t.transactionDate >= :startDate) AND " +
+           "(:endDate IS NULL OR t.transactionDate <= :endDate) ORDER BY t.id")
+    Stream<Transaction> streamForExport(@Param("portfolioId") Long portfolioId,
+                                        @Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate);
 }
-
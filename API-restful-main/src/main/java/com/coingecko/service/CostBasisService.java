@@ -0,0 +1,314 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.TransactionRow;
+import com.coingecko.event.TransactionsChangedEvent;
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Transaction.TransactionType;
+import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PortfolioRepository;
+import com.coingecko.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Custo de aquisição por lotes FIFO.
+ * O histórico de um portfólio é reproduzido uma única vez (na primeira consulta) e o
+ * estado dos lotes fica em memória; novas transações são aplicadas incrementalmente.
+ * Alterações e exclusões de transações descartam o estado, que é refeito na próxima consulta.
+ * O cache é limitado ({@code coingecko.cost-basis}): portfólios pouco consultados saem da
+ * memória e são refeitos quando voltarem a ser consultados.
+ */
+@Service
+public class CostBasisService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CostBasisService.class);
+    
+    // Ordem do replay: data da transação e, no empate, id
+    private static final Comparator<TransactionRow> CHRONOLOGICAL = Comparator
+        .comparing(TransactionRow::transactionDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(TransactionRow::id, Comparator.nullsFirst(Comparator.naturalOrder()));
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    
+    @Autowired
+    private CryptoRepository cryptoRepository;
+    
+    @Autowired
+    private HoldingsIndex holdingsIndex;
+    
+    @Value("${coingecko.cost-basis.max-portfolios:1000}")
+    private long maxPortfolios;
+    
+    @Value("${coingecko.cost-basis.expire-after-access:30m}")
+    private Duration expireAfterAccess;
+    
+    private Cache<Long, PortfolioLots> lotsByPortfolio;
+    private final AtomicLong replays = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    // Incrementado a cada evento: um replay concorrente com um evento não é guardado
+    private final AtomicLong changes = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        lotsByPortfolio = Caffeine.newBuilder()
+                .maximumSize(maxPortfolios)
+                .expireAfterAccess(expireAfterAccess)
+                .build();
+    }
+    
+    /**
+     * PnL realizado e não realizado do portfólio, com custo médio por moeda em carteira.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getPnl(Long portfolioId) {
+        if (!portfolioRepository.existsById(portfolioId)) {
+            throw new RuntimeException("Portfólio não encontrado com id: " + portfolioId);
+        }
+        
+        PortfolioLots lots = lotsFor(portfolioId);
+        List<CryptoSummary> summaries = lots.summarize();
+        
+        Map<Long, Crypto> cryptos = new HashMap<>();
+        cryptoRepository.findAllById(summaries.stream().map(CryptoSummary::cryptoId).toList())
+            .forEach(crypto -> cryptos.put(crypto.getId(), crypto));
+        
+        BigDecimal totalRealized = BigDecimal.ZERO;
+        BigDecimal totalUnrealized = BigDecimal.ZERO;
+        BigDecimal totalCostBasis = BigDecimal.ZERO;
+        List<Map<String, Object>> holdings = new ArrayList<>();
+        
+        for (CryptoSummary summary : summaries) {
+            Crypto crypto = cryptos.get(summary.cryptoId());
+            BigDecimal price = holdingsIndex.priceOf(summary.cryptoId());
+            if (price == null && crypto != null) {
+                price = crypto.getCurrentPrice();
+            }
+            
+            BigDecimal unrealized = null;
+            if (price != null && summary.quantity().signum() > 0) {
+                unrealized = summary.quantity().multiply(price).subtract(summary.costBasis());
+                totalUnrealized = totalUnrealized.add(unrealized);
+            }
+            totalRealized = totalRealized.add(summary.realized());
+            totalCostBasis = totalCostBasis.add(summary.costBasis());
+            
+            Map<String, Object> holding = new LinkedHashMap<>();
+            holding.put("cryptoId", summary.cryptoId());
+            holding.put("symbol", crypto != null ? crypto.getSymbol() : null);
+            holding.put("quantity", summary.quantity());
+            holding.put("averageCost", summary.quantity().signum() > 0
+                ? summary.costBasis().divide(summary.quantity(), 8, RoundingMode.HALF_UP)
+                : null);
+            holding.put("costBasis", money(summary.costBasis()));
+            holding.put("currentPrice", price);
+            holding.put("realizedPnl", money(summary.realized()));
+            holding.put("unrealizedPnl", unrealized != null ? money(unrealized) : null);
+            holding.put("openLots", summary.openLots());
+            holdings.add(holding);
+        }
+        
+        Map<String, Object> pnl = new LinkedHashMap<>();
+        pnl.put("portfolioId", portfolioId);
+        pnl.put("realizedPnl", money(totalRealized));
+        pnl.put("unrealizedPnl", money(totalUnrealized));
+        pnl.put("totalPnl", money(totalRealized.add(totalUnrealized)));
+        pnl.put("costBasis", money(totalCostBasis));
+        pnl.put("holdings", holdings);
+        pnl.put("transactionsReplayed", lots.transactionCount());
+        return pnl;
+    }
+    
+    /**
+     * Aplica a nova transação aos lotes em cache ou descarta o estado quando o histórico mudou.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransactionsChanged(TransactionsChangedEvent event) {
+        changes.incrementAndGet();
+        if (event.appended() == null) {
+            lotsByPortfolio.invalidate(event.portfolioId());
+            return;
+        }
+        
+        // Sem estado em cache não há o que atualizar: o próximo replay já inclui a transação
+        lotsByPortfolio.asMap().computeIfPresent(event.portfolioId(), (id, lots) -> {
+            if (lots.append(event.appended())) {
+                incrementalUpdates.incrementAndGet();
+                return lots;
+            }
+            logger.debug("Transação {} fora de ordem no portfólio {}, lotes serão refeitos", event.appended().id(), id);
+            return null;
+        });
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("cachedPortfolios", lotsByPortfolio.estimatedSize());
+        status.put("maxPortfolios", maxPortfolios);
+        status.put("replays", replays.get());
+        status.put("incrementalUpdates", incrementalUpdates.get());
+        return status;
+    }
+    
+    /**
+     * Lotes em cache ou refeitos a partir do banco. O replay roda fora do cache (sem
+     * segurar locks durante a consulta) e só fica guardado se nenhum evento chegou até ele
+     * estar no cache: um evento anterior ao {@code putIfAbsent} não encontra o estado para
+     * atualizar, então o contador é conferido de novo depois da inserção.
+     */
+    private PortfolioLots lotsFor(Long portfolioId) {
+        PortfolioLots cached = lotsByPortfolio.getIfPresent(portfolioId);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long changesBefore = changes.get();
+        PortfolioLots loaded = replay(portfolioId);
+        if (changes.get() != changesBefore) {
+            return loaded;
+        }
+        PortfolioLots existing = lotsByPortfolio.asMap().putIfAbsent(portfolioId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        if (changes.get() != changesBefore) {
+            // Remove só o estado inserido aqui, não um que outra consulta já tenha refeito
+            lotsByPortfolio.asMap().remove(portfolioId, loaded);
+        }
+        return loaded;
+    }
+    
+    private PortfolioLots replay(Long portfolioId) {
+        long start = System.nanoTime();
+        PortfolioLots lots = new PortfolioLots();
+        List<TransactionRow> rows = transactionRepository.findRowsForCostBasis(portfolioId);
+        for (TransactionRow row : rows) {
+            lots.append(row);
+        }
+        replays.incrementAndGet();
+        logger.debug("Lotes do portfólio {} refeitos a partir de {} transações em {} ms",
+                portfolioId, rows.size(), (System.nanoTime() - start) / 1_000_000);
+        return lots;
+    }
+    
+    private static BigDecimal money(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    private record Lot(BigDecimal quantity, BigDecimal unitCost) {
+    }
+    
+    private record CryptoSummary(Long cryptoId, BigDecimal quantity, BigDecimal costBasis, BigDecimal realized, int openLots) {
+    }
+    
+    /**
+     * Lotes em aberto e PnL realizado de uma criptomoeda.
+     * Custo e quantidade em aberto são mantidos como totais para que o resumo não percorra os lotes.
+     */
+    private static final class CryptoLots {
+        
+        private final Deque<Lot> lots = new ArrayDeque<>();
+        private BigDecimal quantity = BigDecimal.ZERO;
+        private BigDecimal costBasis = BigDecimal.ZERO;
+        private BigDecimal realized = BigDecimal.ZERO;
+        
+        void buy(BigDecimal buyQuantity, BigDecimal price) {
+            lots.addLast(new Lot(buyQuantity, price));
+            quantity = quantity.add(buyQuantity);
+            costBasis = costBasis.add(buyQuantity.multiply(price));
+        }
+        
+        void sell(BigDecimal sellQuantity, BigDecimal price) {
+            BigDecimal remaining = sellQuantity;
+            while (remaining.signum() > 0 && !lots.isEmpty()) {
+                Lot lot = lots.peekFirst();
+                BigDecimal matched = lot.quantity().min(remaining);
+                BigDecimal lotCost = matched.multiply(lot.unitCost());
+                
+                realized = realized.add(matched.multiply(price)).subtract(lotCost);
+                quantity = quantity.subtract(matched);
+                costBasis = costBasis.subtract(lotCost);
+                remaining = remaining.subtract(matched);
+                
+                lots.pollFirst();
+                if (matched.compareTo(lot.quantity()) < 0) {
+                    lots.addFirst(new Lot(lot.quantity().subtract(matched), lot.unitCost()));
+                }
+            }
+            // Venda acima do saldo: o excedente não tem custo de aquisição e não entra no PnL
+        }
+    }
+    
+    /**
+     * Estado FIFO de um portfólio. Acesso sincronizado: o replay, os eventos e as consultas
+     * podem ocorrer em threads diferentes.
+     */
+    private static final class PortfolioLots {
+        
+        private final Map<Long, CryptoLots> byCrypto = new HashMap<>();
+        private TransactionRow last;
+        private int transactionCount;
+        
+        /**
+         * Aplica a transação se ela for posterior à última aplicada.
+         * Retorna false quando ela está fora de ordem e os lotes precisam ser refeitos.
+         */
+        synchronized boolean append(TransactionRow row) {
+            if (last != null) {
+                int order = CHRONOLOGICAL.compare(row, last);
+                if (order == 0) {
+                    return true; // já incluída pelo replay
+                }
+                if (order < 0) {
+                    return false;
+                }
+            }
+            
+            CryptoLots cryptoLots = byCrypto.computeIfAbsent(row.cryptoId(), id -> new CryptoLots());
+            if (row.type() == TransactionType.SELL) {
+                cryptoLots.sell(row.quantity(), row.pricePerUnit());
+            } else {
+                cryptoLots.buy(row.quantity(), row.pricePerUnit());
+            }
+            last = row;
+            transactionCount++;
+            return true;
+        }
+        
+        synchronized List<CryptoSummary> summarize() {
+            List<CryptoSummary> summaries = new ArrayList<>();
+            byCrypto.forEach((cryptoId, lots) -> summaries.add(
+                new CryptoSummary(cryptoId, lots.quantity, lots.costBasis, lots.realized, lots.lots.size())));
+            return summaries;
+        }
+        
+        synchronized int transactionCount() {
+            return transactionCount;
+        }
+    }
+}
@@ -1,26 +1,61 @@
 package com.coingecko.service;
 
+import com.coingecko.config.PaginationProperties;
+import com.coingecko.dto.CursorPage;
+import com.coingecko.dto.PageCursor;
+import com.coingecko.event.PriceTickEvent;
 import com.coingecko.model.Crypto;
 import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PositionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class CryptoService {
     
+    // change24h é NUMERIC(5,2)
+    private static final BigDecimal MAX_CHANGE_24H = new BigDecimal("1000");
+    
     @Autowired
     private CryptoRepository cryptoRepository;
     
+    @Autowired
+    private PositionRepository positionRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private PaginationProperties paginationProperties;
+    
     public List<Crypto> findAll() {
         return cryptoRepository.findAll();
     }
     
+    /**
+     * Página ordenada por id a partir do cursor (null = primeira página).
+     */
+    public CursorPage<Crypto> findPage(String cursor, Integer size) {
+        int pageSize = paginationProperties.resolve(size);
+        PageCursor position = PageCursor.decodeAscendingId(cursor);
+        List<Crypto> fetched = cryptoRepository.findByIdGreaterThanOrderByIdAsc(position.id(), PageRequest.ofSize(pageSize + 1));
+        return CursorPage.of(fetched, pageSize, crypto -> PageCursor.ofId(crypto.getId()));
+    }
+    
     public Optional<Crypto> findById(Long id) {
         return cryptoRepository.findById(id);
     }
@@ -99,13 +134,94 @@ public class CryptoService {
         crypto.setChange24h(cryptoDetails.getChange24h());
         crypto.setDescription(cryptoDetails.getDescription());
         
-        return cryptoRepository.save(crypto);
+        Crypto updated = cryptoRepository.save(crypto);
+        publishPriceTick(List.of(updated));
+        return updated;
+    }
+    
+    /**
+     * Insere ou atualiza, pelo símbolo, as criptomoedas recebidas do mercado.
+     * Entradas que violariam as restrições da tabela (símbolo longo, nome duplicado
+     * em outro símbolo, preço não positivo) são ignoradas.
+     * As existentes são carregadas em uma única consulta e alteradas em memória; as
+     * atualizações e inserções são enviadas em lote (hibernate.jdbc.batch_size) no
+     * commit desta transação.
+     * @return criptomoedas persistidas, já com os valores do mercado aplicados
+     */
+    public List<Crypto> upsertMarketData(List<Crypto> marketData) {
+        Map<String, Crypto> incoming = new LinkedHashMap<>();
+        for (Crypto apiCrypto : marketData) {
+            if (isPersistable(apiCrypto)) {
+                incoming.putIfAbsent(apiCrypto.getSymbol(), apiCrypto);
+            }
+        }
+        if (incoming.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Map<String, Crypto> existing = new HashMap<>();
+        for (Crypto crypto : cryptoRepository.findBySymbolIn(incoming.keySet())) {
+            existing.put(crypto.getSymbol(), crypto);
+        }
+        
+        List<Crypto> newCryptos = new ArrayList<>();
+        for (Crypto apiCrypto : incoming.values()) {
+            if (!existing.containsKey(apiCrypto.getSymbol())) {
+                newCryptos.add(apiCrypto);
+            }
+        }
+        
+        // Nomes já usados por outro símbolo violariam a unique constraint
+        Set<String> takenNames = new HashSet<>();
+        if (!newCryptos.isEmpty()) {
+            takenNames.addAll(cryptoRepository.findExistingNames(
+                newCryptos.stream().map(Crypto::getName).toList()));
+        }
+        
+        List<Crypto> persisted = new ArrayList<>();
+        List<Crypto> inserts = new ArrayList<>();
+        for (Crypto apiCrypto : incoming.values()) {
+            Crypto crypto = existing.get(apiCrypto.getSymbol());
+            if (crypto != null) {
+                // Entidade gerenciada: o dirty checking gera o UPDATE no flush
+                crypto.setCurrentPrice(apiCrypto.getCurrentPrice());
+                crypto.setMarketCap(apiCrypto.getMarketCap());
+                crypto.setVolume24h(apiCrypto.getVolume24h());
+                crypto.setChange24h(apiCrypto.getChange24h());
+                persisted.add(crypto);
+            } else if (takenNames.add(apiCrypto.getName())) {
+                inserts.add(apiCrypto);
+            }
+        }
+        
+        persisted.addAll(cryptoRepository.saveAll(inserts));
+        publishPriceTick(persisted);
+        return persisted;
+    }
+    
+    // Reavaliação dos portfólios acontece após o commit (PortfolioRevaluationService)
+    private void publishPriceTick(List<Crypto> cryptos) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (Crypto crypto : cryptos) {
+            prices.put(crypto.getId(), crypto.getCurrentPrice());
+        }
+        if (!prices.isEmpty()) {
+            eventPublisher.publishEvent(new PriceTickEvent(prices));
+        }
+    }
+    
+    private boolean isPersistable(Crypto crypto) {
+        return crypto.getSymbol() != null && crypto.getSymbol().length() <= 10
+            && crypto.getName() != null && crypto.getName().length() <= 100
+            && crypto.getCurrentPrice() != null && crypto.getCurrentPrice().signum() > 0
+            && (crypto.getChange24h() == null || crypto.getChange24h().abs().compareTo(MAX_CHANGE_24H) < 0);
     }
     
     public void deleteById(Long id) {
         if (!cryptoRepository.existsById(id)) {
             throw new RuntimeException("Criptomoeda não encontrada com id: " + id);
         }
+        positionRepository.deleteByCryptoId(id);
         cryptoRepository.deleteById(id);
     }
     
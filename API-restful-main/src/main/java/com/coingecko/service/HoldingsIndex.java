@@ -0,0 +1,228 @@
+package com.coingecko.service;
+
+import com.coingecko.event.PositionsChangedEvent;
+import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PositionRepository;
+import com.coingecko.util.FixedPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice em memória das posições abertas (quantidade > 0).
+ * Mantém portfólio -> (moeda -> quantidade), o índice invertido moeda -> portfólios e
+ * o último preço de cada moeda, para que uma variação de preço reavalie apenas os
+ * portfólios que possuem a moeda, sem consultar o banco.
+ * Quantidades e preços ficam em ponto fixo ({@link FixedPoint}); BigDecimal só é usado
+ * quando um valor não cabe em um long.
+ */
+@Component
+public class HoldingsIndex {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HoldingsIndex.class);
+    
+    @Autowired
+    private PositionRepository positionRepository;
+    
+    @Autowired
+    private CryptoRepository cryptoRepository;
+    
+    private final Map<Long, Holdings> holdingsByPortfolio = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> portfoliosByCrypto = new ConcurrentHashMap<>();
+    // Preço bruto (valor x 10^8) por cryptoId
+    private final Map<Long, Long> prices = new ConcurrentHashMap<>();
+    // Preços que não cabem no ponto fixo, usados pelo caminho em BigDecimal
+    private final Map<Long, BigDecimal> widePrices = new ConcurrentHashMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        holdingsByPortfolio.clear();
+        portfoliosByCrypto.clear();
+        prices.clear();
+        widePrices.clear();
+        
+        for (Object[] row : cryptoRepository.findAllPrices()) {
+            updatePrice((Long) row[0], (BigDecimal) row[1]);
+        }
+        
+        Map<Long, Map<Long, BigDecimal>> loaded = new HashMap<>();
+        for (Object[] row : positionRepository.findAllHoldings()) {
+            loaded.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put((Long) row[1], (BigDecimal) row[2]);
+        }
+        loaded.forEach(this::index);
+        
+        logger.info("Índice de posições carregado: {} portfólios, {} moedas com preço", holdingsByPortfolio.size(), prices.size() + widePrices.size());
+    }
+    
+    /**
+     * Recarrega as posições de um portfólio depois que a transação que as alterou é confirmada.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPositionsChanged(PositionsChangedEvent event) {
+        Map<Long, BigDecimal> holdings = new HashMap<>();
+        for (Object[] row : positionRepository.findHoldings(event.portfolioId())) {
+            holdings.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        replace(event.portfolioId(), holdings);
+    }
+    
+    /**
+     * Atualiza os preços e retorna os portfólios que possuem alguma das moedas alteradas.
+     */
+    public Set<Long> applyPrices(Map<Long, BigDecimal> changedPrices) {
+        Set<Long> affected = new HashSet<>();
+        changedPrices.forEach((cryptoId, price) -> {
+            updatePrice(cryptoId, price);
+            Set<Long> holders = portfoliosByCrypto.get(cryptoId);
+            if (holders != null) {
+                affected.addAll(holders);
+            }
+        });
+        return affected;
+    }
+    
+    /**
+     * Valor de mercado do portfólio (quantidade x último preço), mesma regra de
+     * PositionRepository.getMarketValue.
+     */
+    public BigDecimal valueOf(Long portfolioId) {
+        Holdings holdings = holdingsByPortfolio.get(portfolioId);
+        if (holdings == null) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        
+        if (holdings.rawQuantities() != null && !holdsWidePrice(holdings)) {
+            try {
+                long total = 0;
+                for (int i = 0; i < holdings.cryptoIds().length; i++) {
+                    Long price = prices.get(holdings.cryptoIds()[i]);
+                    if (price != null) {
+                        total = FixedPoint.addRaw(total, FixedPoint.multiplyRaw(holdings.rawQuantities()[i], price));
+                    }
+                }
+                return FixedPoint.toBigDecimal(total).setScale(2, RoundingMode.HALF_UP);
+            } catch (ArithmeticException e) {
+                logger.debug("Valor do portfólio {} excede o ponto fixo, usando BigDecimal", portfolioId);
+            }
+        }
+        
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < holdings.cryptoIds().length; i++) {
+            BigDecimal price = priceOf(holdings.cryptoIds()[i]);
+            if (price != null) {
+                total = total.add(holdings.quantities()[i].multiply(price));
+            }
+        }
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Último preço conhecido da moeda, ou null se ainda não houver preço.
+     */
+    public BigDecimal priceOf(Long cryptoId) {
+        Long price = prices.get(cryptoId);
+        return price != null ? FixedPoint.toBigDecimal(price) : widePrices.get(cryptoId);
+    }
+    
+    public int portfolioCount() {
+        return holdingsByPortfolio.size();
+    }
+    
+    private void updatePrice(Long cryptoId, BigDecimal price) {
+        if (price == null) {
+            return;
+        }
+        try {
+            prices.put(cryptoId, FixedPoint.toRaw(price));
+            widePrices.remove(cryptoId);
+        } catch (ArithmeticException e) {
+            // Não mantém o preço antigo: a moeda passa a ser avaliada em BigDecimal
+            logger.warn("Preço {} da criptomoeda {} fora do intervalo do ponto fixo, usando BigDecimal", price, cryptoId);
+            widePrices.put(cryptoId, price);
+            prices.remove(cryptoId);
+        }
+    }
+    
+    private boolean holdsWidePrice(Holdings holdings) {
+        if (widePrices.isEmpty()) {
+            return false;
+        }
+        for (long cryptoId : holdings.cryptoIds()) {
+            if (widePrices.containsKey(cryptoId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private synchronized void replace(Long portfolioId, Map<Long, BigDecimal> holdings) {
+        Holdings previous = holdingsByPortfolio.remove(portfolioId);
+        if (previous != null) {
+            unindex(portfolioId, previous.cryptoIds());
+        }
+        index(portfolioId, holdings);
+    }
+    
+    private void index(Long portfolioId, Map<Long, BigDecimal> holdings) {
+        if (holdings.isEmpty()) {
+            return;
+        }
+        holdingsByPortfolio.put(portfolioId, Holdings.of(holdings));
+        for (Long cryptoId : holdings.keySet()) {
+            portfoliosByCrypto.computeIfAbsent(cryptoId, id -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+        }
+    }
+    
+    private void unindex(Long portfolioId, long[] cryptoIds) {
+        for (long cryptoId : cryptoIds) {
+            Set<Long> holders = portfoliosByCrypto.get(cryptoId);
+            if (holders != null) {
+                holders.remove(portfolioId);
+                if (holders.isEmpty()) {
+                    portfoliosByCrypto.remove(cryptoId);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Posições de um portfólio em arrays paralelos. {@code rawQuantities} é null quando
+     * alguma quantidade não cabe no ponto fixo.
+     */
+    private record Holdings(long[] cryptoIds, long[] rawQuantities, BigDecimal[] quantities) {
+        
+        static Holdings of(Map<Long, BigDecimal> holdings) {
+            long[] cryptoIds = new long[holdings.size()];
+            long[] rawQuantities = new long[holdings.size()];
+            BigDecimal[] quantities = new BigDecimal[holdings.size()];
+            
+            int i = 0;
+            for (Map.Entry<Long, BigDecimal> entry : holdings.entrySet()) {
+                cryptoIds[i] = entry.getKey();
+                quantities[i] = entry.getValue();
+                if (rawQuantities != null) {
+                    try {
+                        rawQuantities[i] = FixedPoint.toRaw(entry.getValue());
+                    } catch (ArithmeticException e) {
+                        rawQuantities = null;
+                    }
+                }
+                i++;
+            }
+            return new Holdings(cryptoIds, rawQuantities, quantities);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.coingecko.service;
+
+import com.coingecko.model.Crypto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detecção de mudanças nos dados de mercado em relação ao último valor publicado.
+ * Moedas sem alteração (ou com variação de preço abaixo do limite configurado) não
+ * são gravadas nem enviadas via WebSocket. A comparação é feita na escala das colunas,
+ * para que valores lidos do banco (já arredondados) não pareçam diferentes dos da API.
+ */
+@Component
+public class MarketChangeDetector {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MarketChangeDetector.class);
+    
+    /**
+     * Variação relativa mínima de preço para publicar (0 = qualquer mudança).
+     * Ex.: 0.0005 = 0,05%
+     */
+    @Value("${coingecko.change-detection.min-relative-change:0}")
+    private BigDecimal minRelativeChange;
+    
+    /**
+     * Limites por símbolo, no formato "BTC:0.0001,DOGE:0.002".
+     */
+    @Value("${coingecko.change-detection.symbol-thresholds:}")
+    private String symbolThresholdsConfig;
+    
+    private final Map<String, BigDecimal> symbolThresholds = new HashMap<>();
+    private final Map<String, Snapshot> lastPublished = new ConcurrentHashMap<>();
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        for (String entry : symbolThresholdsConfig.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length == 2) {
+                symbolThresholds.put(parts[0].trim().toUpperCase(Locale.ROOT), new BigDecimal(parts[1].trim()));
+            }
+        }
+        if (!symbolThresholds.isEmpty()) {
+            logger.info("Limites de variação por símbolo: {}", symbolThresholds);
+        }
+    }
+    
+    /**
+     * Retorna apenas as moedas que mudaram desde a última publicação.
+     */
+    public List<Crypto> filterChanged(List<Crypto> marketData) {
+        List<Crypto> result = new ArrayList<>();
+        for (Crypto crypto : marketData) {
+            if (crypto.getSymbol() == null || hasChanged(crypto, lastPublished.get(crypto.getSymbol()))) {
+                result.add(crypto);
+            }
+        }
+        
+        changed.addAndGet(result.size());
+        skipped.addAndGet(marketData.size() - result.size());
+        if (result.size() < marketData.size()) {
+            logger.debug("{} de {} criptomoedas sem alteração relevante", marketData.size() - result.size(), marketData.size());
+        }
+        return result;
+    }
+    
+    /**
+     * Registra os valores publicados como base para a próxima comparação.
+     */
+    public void record(Collection<Crypto> published) {
+        for (Crypto crypto : published) {
+            lastPublished.put(crypto.getSymbol(), Snapshot.of(crypto));
+        }
+    }
+    
+    /**
+     * Esquece os valores publicados; a próxima atualização grava e envia tudo.
+     */
+    public void reset() {
+        lastPublished.clear();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("tracked", lastPublished.size());
+        status.put("changed", changed.get());
+        status.put("skipped", skipped.get());
+        status.put("minRelativeChange", minRelativeChange);
+        status.put("symbolThresholds", symbolThresholds);
+        return status;
+    }
+    
+    private boolean hasChanged(Crypto crypto, Snapshot previous) {
+        if (previous == null) {
+            return true;
+        }
+        
+        boolean fieldsChanged = differs(crypto.getCurrentPrice(), previous.price(), Crypto.PRICE_SCALE)
+            || differs(crypto.getMarketCap(), previous.marketCap(), Crypto.AMOUNT_SCALE)
+            || differs(crypto.getVolume24h(), previous.volume24h(), Crypto.AMOUNT_SCALE)
+            || differs(crypto.getChange24h(), previous.change24h(), Crypto.CHANGE_SCALE);
+        if (!fieldsChanged) {
+            return false;
+        }
+        
+        BigDecimal threshold = symbolThresholds.getOrDefault(crypto.getSymbol(), minRelativeChange);
+        if (threshold.signum() <= 0 || previous.price() == null || previous.price().signum() == 0
+                || crypto.getCurrentPrice() == null) {
+            return true;
+        }
+        
+        // Compara com o último valor publicado, então pequenas variações se acumulam até o limite
+        BigDecimal relativeChange = crypto.getCurrentPrice().subtract(previous.price())
+            .abs()
+            .divide(previous.price(), MathContext.DECIMAL64);
+        return relativeChange.compareTo(threshold) >= 0;
+    }
+    
+    // Compara arredondando à escala da coluna; compareTo ignora zeros à direita (1.50 == 1.5)
+    static boolean differs(BigDecimal current, BigDecimal previous, int scale) {
+        if (current == null || previous == null) {
+            return current != previous;
+        }
+        return current.setScale(scale, RoundingMode.HALF_UP).compareTo(previous.setScale(scale, RoundingMode.HALF_UP)) != 0;
+    }
+    
+    private record Snapshot(BigDecimal price, BigDecimal marketCap, BigDecimal volume24h, BigDecimal change24h) {
+        
+        static Snapshot of(Crypto crypto) {
+            return new Snapshot(crypto.getCurrentPrice(), crypto.getMarketCap(), crypto.getVolume24h(), crypto.getChange24h());
+        }
+    }
+}
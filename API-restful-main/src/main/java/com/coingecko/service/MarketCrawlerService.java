@@ -0,0 +1,160 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.MarketPage;
+import com.coingecko.service.UpstreamRateLimiter.Priority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Varredura paginada do ranking de market cap além do limite de 250 moedas por página.
+ * Cada página é persistida assim que chega; o progresso e as páginas com falha ficam
+ * disponíveis em {@link #getStatus()}.
+ */
+@Service
+public class MarketCrawlerService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MarketCrawlerService.class);
+    
+    @Autowired
+    private ReactiveCoinGeckoApiService reactiveApiService;
+    
+    @Autowired
+    private CryptoService cryptoService;
+    
+    @Value("${coingecko.crawl.max-limit:5000}")
+    private int maxLimit;
+    
+    private volatile CrawlProgress progress;
+    private volatile Disposable subscription;
+    
+    /**
+     * Inicia uma varredura das top {@code limit} moedas em segundo plano.
+     * @return false se já houver uma varredura em andamento
+     */
+    public synchronized boolean startCrawl(int limit) {
+        if (progress != null && progress.isRunning()) {
+            return false;
+        }
+        
+        int effectiveLimit = Math.max(1, Math.min(limit, maxLimit));
+        CrawlProgress current = new CrawlProgress(effectiveLimit);
+        progress = current;
+        
+        logger.info("Iniciando varredura das top {} criptomoedas", effectiveLimit);
+        
+        subscription = reactiveApiService.getTopMarketPages(effectiveLimit)
+                .concatMap(page -> Mono.fromRunnable(() -> persistPage(page, current))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.SCHEDULED))
+                .subscribe(
+                    ignored -> { },
+                    e -> {
+                        logger.error("Varredura interrompida: {}", e.getMessage(), e);
+                        current.finish(e.getMessage());
+                    },
+                    () -> {
+                        logger.info("Varredura concluída: {} páginas, {} com falha, {} moedas persistidas",
+                                current.completedPages.get(), current.failedPages.size(), current.persisted.get());
+                        current.finish(null);
+                    });
+        return true;
+    }
+    
+    public synchronized void cancelCrawl() {
+        if (subscription != null && !subscription.isDisposed()) {
+            subscription.dispose();
+            if (progress != null && progress.isRunning()) {
+                progress.finish("Cancelada");
+            }
+        }
+    }
+    
+    public Map<String, Object> getStatus() {
+        CrawlProgress current = progress;
+        if (current == null) {
+            Map<String, Object> status = new HashMap<>();
+            status.put("running", false);
+            return status;
+        }
+        return current.toMap();
+    }
+    
+    private void persistPage(MarketPage page, CrawlProgress current) {
+        if (page.failed()) {
+            current.failedPages.add(pageError(page.page(), page.error()));
+            return;
+        }
+        
+        try {
+            int persisted = cryptoService.upsertMarketData(page.cryptos()).size();
+            current.persisted.addAndGet(persisted);
+            current.completedPages.incrementAndGet();
+            logger.info("Página {} persistida: {}/{} moedas", page.page(), persisted, page.cryptos().size());
+        } catch (Exception e) {
+            logger.error("Erro ao persistir página {}: {}", page.page(), e.getMessage());
+            current.failedPages.add(pageError(page.page(), e.getMessage()));
+        }
+    }
+    
+    private static Map<String, Object> pageError(int page, String error) {
+        Map<String, Object> failure = new HashMap<>();
+        failure.put("page", page);
+        failure.put("error", error);
+        return failure;
+    }
+    
+    private static class CrawlProgress {
+        private final int limit;
+        private final int totalPages;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger completedPages = new AtomicInteger();
+        private final AtomicInteger persisted = new AtomicInteger();
+        private final List<Map<String, Object>> failedPages = new CopyOnWriteArrayList<>();
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        
+        CrawlProgress(int limit) {
+            this.limit = limit;
+            this.totalPages = (limit + 249) / 250;
+        }
+        
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+        
+        void finish(String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+        }
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> status = new HashMap<>();
+            status.put("running", isRunning());
+            status.put("limit", limit);
+            status.put("totalPages", totalPages);
+            status.put("completedPages", completedPages.get());
+            status.put("failedPages", new ArrayList<>(failedPages));
+            status.put("persisted", persisted.get());
+            status.put("startedAt", startedAt);
+            status.put("finishedAt", finishedAt);
+            if (error != null) {
+                status.put("error", error);
+            }
+            return status;
+        }
+    }
+}
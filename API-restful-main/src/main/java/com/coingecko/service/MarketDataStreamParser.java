@@ -0,0 +1,181 @@
+package com.coingecko.service;
+
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser incremental para respostas de /coins/markets.
+ * Decodifica os DataBuffers do corpo à medida que chegam, token a token, direto em
+ * instâncias de {@link Crypto} - sem String intermediária nem árvore JsonNode, e sem
+ * depender do limite maxInMemorySize do WebClient.
+ */
+final class MarketDataStreamParser {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataStreamParser.class);
+    
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    
+    private int depth = 0;
+    private String field;
+    private Crypto current;
+    private int parsedCount = 0;
+    
+    private MarketDataStreamParser(JsonFactory factory) throws IOException {
+        this.parser = factory.createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+    
+    /**
+     * Converte o corpo de /coins/markets em um Flux de criptomoedas, emitidas assim que
+     * cada objeto do array é concluído.
+     */
+    static Flux<Crypto> parse(Flux<DataBuffer> body, JsonFactory factory) {
+        return Flux.using(
+                () -> new MarketDataStreamParser(factory),
+                parser -> body
+                        .concatMapIterable(parser::feed)
+                        .concatWith(Flux.defer(() -> Flux.fromIterable(parser.finish()))),
+                MarketDataStreamParser::close)
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+    
+    private List<Crypto> feed(DataBuffer buffer) {
+        List<Crypto> parsed = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                feeder.feedInput(iterator.next());
+                drain(parsed);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+        return parsed;
+    }
+    
+    private List<Crypto> finish() {
+        List<Crypto> parsed = new ArrayList<>();
+        try {
+            feeder.endOfInput();
+            drain(parsed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        if (depth != 0) {
+            throw new IllegalStateException("Resposta JSON truncada (profundidade " + depth + ")");
+        }
+        
+        logger.info("Parseados {} criptomoedas do mercado com sucesso", parsedCount);
+        return parsed;
+    }
+    
+    private void drain(List<Crypto> out) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_ARRAY, START_OBJECT -> {
+                    if (depth == 0 && token != JsonToken.START_ARRAY) {
+                        // A API responde com um objeto {"status": {...}} em caso de erro/rate limit
+                        throw new IllegalStateException("API retornou um objeto em vez de um array");
+                    }
+                    if (depth == 1 && token == JsonToken.START_OBJECT) {
+                        current = new Crypto();
+                    }
+                    depth++;
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    depth--;
+                    if (depth == 1 && current != null) {
+                        complete(out);
+                    }
+                }
+                case FIELD_NAME -> {
+                    if (depth == 2) {
+                        field = parser.currentName();
+                    }
+                }
+                default -> {
+                    // Valores escalares do objeto da moeda; objetos aninhados (roi, etc.) são ignorados
+                    if (depth == 2 && current != null && token != JsonToken.VALUE_NULL) {
+                        applyValue(token);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void applyValue(JsonToken token) throws IOException {
+        boolean numeric = token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT;
+        switch (field) {
+            case "name" -> current.setName(parser.getText());
+            case "symbol" -> current.setSymbol(parser.getText().toUpperCase());
+            case "image" -> current.setImageUrl(parser.getText());
+            case "current_price" -> {
+                if (numeric) {
+                    current.setCurrentPrice(parser.getDecimalValue());
+                }
+            }
+            case "market_cap" -> {
+                if (numeric) {
+                    current.setMarketCap(parser.getDecimalValue());
+                }
+            }
+            case "total_volume" -> {
+                if (numeric) {
+                    current.setVolume24h(parser.getDecimalValue());
+                }
+            }
+            case "price_change_percentage_24h" -> {
+                if (numeric) {
+                    current.setChange24h(parser.getDecimalValue());
+                }
+            }
+            default -> {
+                // campo não utilizado
+            }
+        }
+    }
+    
+    private void complete(List<Crypto> out) {
+        Crypto crypto = current;
+        current = null;
+        
+        // Validar campos obrigatórios
+        if (crypto.getName() == null || crypto.getSymbol() == null) {
+            logger.warn("Objeto sem campos obrigatórios, pulando");
+            return;
+        }
+        if (crypto.getCurrentPrice() == null) {
+            logger.warn("Preço atual não encontrado para {}", crypto.getName());
+            return;
+        }
+        
+        parsedCount++;
+        out.add(crypto);
+        logger.debug("Parseado: {} ({}) - ${}", crypto.getName(), crypto.getSymbol(), crypto.getCurrentPrice());
+    }
+    
+    private void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            logger.debug("Erro ao fechar parser: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.CryptoTick;
+import com.coingecko.model.Crypto;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Último estado de mercado enviado aos clientes, com número de sequência.
+ * Cada ciclo de atualização vira um delta com apenas os campos que mudaram e a próxima
+ * sequência; o snapshot devolve o estado completo na sequência atual. O cliente aplica
+ * os deltas com sequência maior que a do snapshot e pede um novo snapshot se notar um buraco.
+ */
+@Component
+public class MarketDeltaState {
+    
+    private final Map<String, CryptoTick> current = new LinkedHashMap<>();
+    private long sequence;
+    
+    /**
+     * Define o estado base sem gerar delta (ex.: preços persistidos na inicialização).
+     */
+    public synchronized void seed(Collection<Crypto> cryptos) {
+        for (Crypto crypto : cryptos) {
+            if (crypto.getSymbol() != null) {
+                current.put(crypto.getSymbol(), CryptoTick.of(crypto));
+            }
+        }
+    }
+    
+    /**
+     * Aplica as moedas ao estado e retorna o delta correspondente, ou null se nada mudou.
+     */
+    public synchronized Delta apply(Collection<Crypto> cryptos) {
+        List<Map<String, Object>> changes = new ArrayList<>();
+        for (Crypto crypto : cryptos) {
+            if (crypto.getSymbol() == null) {
+                continue;
+            }
+            CryptoTick tick = CryptoTick.of(crypto);
+            Map<String, Object> change = diff(current.put(tick.symbol(), tick), tick);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            return null;
+        }
+        sequence++;
+        return new Delta(sequence, changes);
+    }
+    
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(sequence, new ArrayList<>(current.values()));
+    }
+    
+    public synchronized long sequence() {
+        return sequence;
+    }
+    
+    // Moeda nova leva todos os campos; as demais só o símbolo e o que mudou
+    private static Map<String, Object> diff(CryptoTick previous, CryptoTick tick) {
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("symbol", tick.symbol());
+        if (previous == null || !Objects.equals(previous.name(), tick.name())) {
+            change.put("name", tick.name());
+        }
+        if (previous == null || differs(previous.currentPrice(), tick.currentPrice())) {
+            change.put("currentPrice", tick.currentPrice());
+        }
+        if (previous == null || differs(previous.marketCap(), tick.marketCap())) {
+            change.put("marketCap", tick.marketCap());
+        }
+        if (previous == null || differs(previous.volume24h(), tick.volume24h())) {
+            change.put("volume24h", tick.volume24h());
+        }
+        if (previous == null || differs(previous.change24h(), tick.change24h())) {
+            change.put("change24h", tick.change24h());
+        }
+        return change.size() > 1 ? change : null;
+    }
+    
+    // compareTo ignora diferenças de escala (1.50 == 1.5)
+    private static boolean differs(BigDecimal previous, BigDecimal current) {
+        if (current == null || previous == null) {
+            return current != previous;
+        }
+        return current.compareTo(previous) != 0;
+    }
+    
+    public record Delta(long sequence, List<Map<String, Object>> changes) {
+    }
+    
+    public record Snapshot(long sequence, List<CryptoTick> cryptos) {
+    }
+}
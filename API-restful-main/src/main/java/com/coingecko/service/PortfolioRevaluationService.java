@@ -0,0 +1,121 @@
+package com.coingecko.service;
+
+import com.coingecko.event.PriceTickEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reavaliação de portfólios dirigida por variação de preço.
+ * A cada gravação de preços, consulta o {@link HoldingsIndex} para encontrar apenas os
+ * portfólios que possuem as moedas alteradas, recalcula os totais em paralelo e grava
+ * todos em lotes JDBC. Após o commit, os novos totais são enviados em
+ * {@code /topic/portfolio/{id}} apenas para os portfólios com inscritos.
+ */
+@Service
+public class PortfolioRevaluationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioRevaluationService.class);
+    private static final String UPDATE_TOTAL_VALUE_SQL = "UPDATE portfolios SET total_value = ?, updated_at = ? WHERE id = ?";
+    
+    @Autowired
+    private HoldingsIndex holdingsIndex;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private WebSocketService webSocketService;
+    
+    @Value("${coingecko.revaluation.batch-size:500}")
+    private int batchSize;
+    
+    private final AtomicLong revaluedTotal = new AtomicLong();
+    private volatile int lastRevalued;
+    private volatile long lastDurationMillis;
+    private volatile LocalDateTime lastRunAt;
+    
+    /**
+     * Executa após o commit dos novos preços, em uma transação própria para as atualizações.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onPriceTick(PriceTickEvent event) {
+        long start = System.nanoTime();
+        
+        Set<Long> affected = holdingsIndex.applyPrices(event.prices());
+        if (affected.isEmpty()) {
+            return;
+        }
+        
+        // Cálculo só em memória: paraleliza entre os núcleos disponíveis
+        List<Object[]> rows = affected.parallelStream()
+                .map(portfolioId -> new Object[] { portfolioId, holdingsIndex.valueOf(portfolioId) })
+                .toList();
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPDATE_TOTAL_VALUE_SQL, rows, batchSize, (ps, row) -> {
+            ps.setBigDecimal(1, (BigDecimal) row[1]);
+            ps.setTimestamp(2, now);
+            ps.setLong(3, (Long) row[0]);
+        });
+        publishAfterCommit(rows);
+        
+        lastRevalued = rows.size();
+        lastDurationMillis = (System.nanoTime() - start) / 1_000_000;
+        lastRunAt = LocalDateTime.now();
+        revaluedTotal.addAndGet(rows.size());
+        logger.info("{} portfólios reavaliados após variação de {} preços em {} ms",
+                rows.size(), event.prices().size(), lastDurationMillis);
+    }
+    
+    private void publishAfterCommit(List<Object[]> rows) {
+        List<Object[]> subscribed = rows.stream()
+                .filter(row -> webSocketService.hasPortfolioSubscribers((Long) row[0]))
+                .toList();
+        if (subscribed.isEmpty()) {
+            return;
+        }
+        
+        Runnable publish = () -> subscribed.forEach(row ->
+                webSocketService.sendPortfolioUpdate((Long) row[0], (BigDecimal) row[1]));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("indexedPortfolios", holdingsIndex.portfolioCount());
+        status.put("lastRevalued", lastRevalued);
+        status.put("lastDurationMillis", lastDurationMillis);
+        status.put("lastRunAt", lastRunAt);
+        status.put("revaluedTotal", revaluedTotal.get());
+        return status;
+    }
+}
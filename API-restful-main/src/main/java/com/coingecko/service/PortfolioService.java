@@ -1,13 +1,27 @@
 package com.coingecko.service;
 
+import com.coingecko.config.PaginationProperties;
+import com.coingecko.dto.CursorPage;
+import com.coingecko.dto.PageCursor;
+import com.coingecko.event.PositionsChangedEvent;
+import com.coingecko.event.TransactionsChangedEvent;
+import com.coingecko.model.Crypto;
 import com.coingecko.model.Portfolio;
+import com.coingecko.model.Position;
+import com.coingecko.repository.CryptoRepository;
 import com.coingecko.repository.PortfolioRepository;
+import com.coingecko.repository.PositionRepository;
 import com.coingecko.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,16 +29,45 @@ import java.util.Optional;
 @Transactional
 public class PortfolioService {
     
+    private static final String INSERT_POSITION_SQL =
+        "INSERT INTO positions (id, portfolio_id, crypto_id, quantity, updated_at) " +
+        "VALUES (NEXT VALUE FOR positions_id_seq, ?, ?, ?, CURRENT_TIMESTAMP)";
+    
     @Autowired
     private PortfolioRepository portfolioRepository;
     
     @Autowired
     private TransactionRepository transactionRepository;
     
+    @Autowired
+    private PositionRepository positionRepository;
+    
+    @Autowired
+    private CryptoRepository cryptoRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PaginationProperties paginationProperties;
+    
     public List<Portfolio> findAll() {
         return portfolioRepository.findAll();
     }
     
+    /**
+     * Página ordenada por id a partir do cursor (null = primeira página).
+     */
+    public CursorPage<Portfolio> findPage(String cursor, Integer size) {
+        int pageSize = paginationProperties.resolve(size);
+        PageCursor position = PageCursor.decodeAscendingId(cursor);
+        List<Portfolio> fetched = portfolioRepository.findByIdGreaterThanOrderByIdAsc(position.id(), PageRequest.ofSize(pageSize + 1));
+        return CursorPage.of(fetched, pageSize, portfolio -> PageCursor.ofId(portfolio.getId()));
+    }
+    
     public Optional<Portfolio> findById(Long id) {
         return portfolioRepository.findById(id);
     }
@@ -78,38 +121,75 @@ public class PortfolioService {
         if (!portfolioRepository.existsById(id)) {
             throw new RuntimeException("Portfólio não encontrado com id: " + id);
         }
+        positionRepository.deleteByPortfolioId(id);
         portfolioRepository.deleteById(id);
+        eventPublisher.publishEvent(new PositionsChangedEvent(id));
+        eventPublisher.publishEvent(TransactionsChangedEvent.rewritten(id));
     }
     
+    /**
+     * Recalcula o valor total a partir das posições (quantidade líquida x preço atual).
+     * O custo depende do número de moedas do portfólio, não do histórico de transações.
+     */
     public void updateTotalValue(Long portfolioId) {
         Portfolio portfolio = portfolioRepository.findById(portfolioId)
             .orElseThrow(() -> new RuntimeException("Portfólio não encontrado com id: " + portfolioId));
         
-        List<com.coingecko.model.Transaction> transactions = transactionRepository.findByPortfolioId(portfolioId);
-        java.util.Map<com.coingecko.model.Crypto, BigDecimal> netQuantities = new java.util.HashMap<>();
+        BigDecimal currentValue = positionRepository.getMarketValue(portfolioId);
+        portfolio.setTotalValue(currentValue != null ? currentValue.setScale(2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        portfolioRepository.save(portfolio);
+    }
+    
+    /**
+     * Soma {@code delta} à posição da criptomoeda no portfólio, criando-a se necessário.
+     * Chamado a cada escrita de transação (positivo na compra, negativo na venda).
+     * A posição nova é inserida via JDBC: se outra transação criar a mesma posição ao mesmo
+     * tempo, a violação da chave única não marca a transação atual para rollback e o delta
+     * é aplicado sobre a posição criada pela outra.
+     * Um delta negativo que deixaria a posição abaixo de zero (ou sem posição) é recusado.
+     */
+    public void applyPositionDelta(Portfolio portfolio, Crypto crypto, BigDecimal delta) {
+        if (delta.signum() == 0) {
+            return;
+        }
         
-        for (com.coingecko.model.Transaction t : transactions) {
-            com.coingecko.model.Crypto crypto = t.getCrypto();
-            BigDecimal qty = netQuantities.getOrDefault(crypto, BigDecimal.ZERO);
-            if (t.getType() == com.coingecko.model.Transaction.TransactionType.BUY) {
-                qty = qty.add(t.getQuantity());
-            } else if (t.getType() == com.coingecko.model.Transaction.TransactionType.SELL) {
-                qty = qty.subtract(t.getQuantity());
+        int updated = positionRepository.applyDelta(portfolio.getId(), crypto.getId(), delta);
+        if (updated == 0) {
+            if (delta.signum() < 0) {
+                throw new RuntimeException("Quantidade insuficiente de " + crypto.getSymbol() + " no portfólio " + portfolio.getId()
+                    + ": a operação deixaria a posição negativa");
+            }
+            try {
+                jdbcTemplate.update(INSERT_POSITION_SQL, portfolio.getId(), crypto.getId(), delta);
+            } catch (DataIntegrityViolationException e) {
+                if (positionRepository.applyDelta(portfolio.getId(), crypto.getId(), delta) == 0) {
+                    throw e;
+                }
             }
-            netQuantities.put(crypto, qty);
         }
+        eventPublisher.publishEvent(new PositionsChangedEvent(portfolio.getId()));
+    }
+    
+    /**
+     * Reconstrói as posições do portfólio a partir do histórico de transações e
+     * atualiza o valor total. Usado para dados inseridos sem passar pelo TransactionService.
+     */
+    public void rebuildPositions(Long portfolioId) {
+        Portfolio portfolio = portfolioRepository.findById(portfolioId)
+            .orElseThrow(() -> new RuntimeException("Portfólio não encontrado com id: " + portfolioId));
         
-        BigDecimal currentValue = BigDecimal.ZERO;
-        for (java.util.Map.Entry<com.coingecko.model.Crypto, BigDecimal> entry : netQuantities.entrySet()) {
-            BigDecimal qty = entry.getValue();
-            if (qty.signum() > 0) {
-                BigDecimal price = entry.getKey().getCurrentPrice() != null ? entry.getKey().getCurrentPrice() : BigDecimal.ZERO;
-                currentValue = currentValue.add(qty.multiply(price));
-            }
+        positionRepository.deleteByPortfolioId(portfolioId);
+        
+        List<Position> positions = new java.util.ArrayList<>();
+        for (Object[] row : transactionRepository.getNetQuantitiesByCrypto(portfolioId)) {
+            Crypto crypto = cryptoRepository.getReferenceById((Long) row[0]);
+            positions.add(new Position(portfolio, crypto, (BigDecimal) row[1]));
         }
+        positionRepository.saveAll(positions);
+        eventPublisher.publishEvent(new PositionsChangedEvent(portfolioId));
+        eventPublisher.publishEvent(TransactionsChangedEvent.rewritten(portfolioId));
         
-        portfolio.setTotalValue(currentValue);
-        portfolioRepository.save(portfolio);
+        updateTotalValue(portfolioId);
     }
     
     public BigDecimal getTotalInvested(Long portfolioId) {
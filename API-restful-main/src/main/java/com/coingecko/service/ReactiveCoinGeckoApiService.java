@@ -0,0 +1,533 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.MarketPage;
+import com.coingecko.exception.UpstreamRateLimitedException;
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cliente não-bloqueante da API CoinGecko.
+ * Todas as operações retornam Mono/Flux e nunca chamam block(), de forma que
+ * nenhuma thread do Jetty ou do scheduler fica presa durante a requisição ao upstream.
+ */
+@Service
+public class ReactiveCoinGeckoApiService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveCoinGeckoApiService.class);
+    static final String COINGECKO_API_URL = "https://api.coingecko.com/api/v3";
+    
+    // Lista expandida de criptomoedas populares (top 30+)
+    static final String[] SUPPORTED_COINS = {
+        "bitcoin", "ethereum", "binancecoin", "cardano", "solana",
+        "ripple", "polkadot", "dogecoin", "avalanche-2", "shiba-inu",
+        "tron", "chainlink", "polygon", "litecoin", "uniswap",
+        "bitcoin-cash", "stellar", "ethereum-classic", "monero", "cosmos",
+        "algorand", "vechain", "filecoin", "theta-token", "aave",
+        "eos", "tezos", "axie-infinity", "the-sandbox", "decentraland",
+        "gala", "enjincoin", "mana", "flow", "near"
+    };
+    
+    private static final long HEALTH_CHECK_CACHE_DURATION = 60000; // 1 minuto
+    private static final int MAX_PER_PAGE = 250; // limite de per_page em /coins/markets
+    
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Value("${coingecko.fetch.parallelism:8}")
+    private int fetchParallelism;
+    
+    @Value("${coingecko.fetch.timeout:10s}")
+    private Duration fetchTimeout;
+    
+    @Value("${coingecko.crawl.concurrency:2}")
+    private int crawlConcurrency;
+    
+    @Value("${coingecko.crawl.page-interval:2s}")
+    private Duration crawlPageInterval;
+    
+    private volatile Boolean cachedHealthStatus = null;
+    private volatile long lastHealthCheck = 0;
+    
+    public ReactiveCoinGeckoApiService(UpstreamRateLimiter rateLimiter) {
+        // Toda chamada ao upstream passa pelo token bucket compartilhado
+        this.webClient = WebClient.builder()
+                .baseUrl(COINGECKO_API_URL)
+                .filter(rateLimiter.filter())
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024))
+                .build();
+        this.objectMapper = new ObjectMapper();
+    }
+    
+    // Chave normalizada: "BTC" e "btc" compartilham a mesma entrada (e o mesmo refresh)
+    @Cacheable(value = "cryptoData", key = "T(com.coingecko.service.ReactiveCoinGeckoApiService).normalizeCoinId(#coinId)")
+    public Mono<Crypto> getCryptoData(String coinId) {
+        return fetchCryptoData(coinId);
+    }
+    
+    public static String normalizeCoinId(String coinId) {
+        return coinId.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Busca a moeda direto no upstream, sem passar pelo cache. Usado no cache miss
+     * e pelo recarregamento antecipado do cache cryptoData (ver CacheConfig).
+     * Chamadas simultâneas para a mesma moeda compartilham uma única requisição.
+     */
+    public Mono<Crypto> fetchCryptoData(String coinId) {
+        String normalizedId = normalizeCoinId(coinId);
+        
+        return requestCoalescer.coalesce("crypto-data", normalizedId, () -> webClient.get()
+                .uri("/coins/{id}?localization=false&tickers=false&market_data=true&community_data=false&developer_data=false&sparkline=false", normalizedId)
+                .retrieve()
+                .bodyToMono(String.class)
+                .doOnSubscribe(s -> logger.info("Buscando dados para: {}", normalizedId))
+                .flatMap(json -> Mono.justOrEmpty(parseCryptoData(json)))
+                .onErrorResume(e -> {
+                    logger.error("Erro ao buscar dados para {}: {}", normalizedId, e.getMessage());
+                    return Mono.empty();
+                }));
+    }
+    
+    /**
+     * Busca os dados de todas as moedas suportadas em paralelo, com no máximo
+     * {@code coingecko.fetch.parallelism} requisições simultâneas. Os resultados são
+     * emitidos na ordem de chegada; moedas que falham ou excedem o timeout são omitidas.
+     */
+    public Flux<Crypto> getAllSupportedCryptoData() {
+        return Flux.fromArray(SUPPORTED_COINS)
+                .flatMap(coinId -> getCryptoData(coinId)
+                        .timeout(fetchTimeout)
+                        .onErrorResume(e -> {
+                            logger.warn("Ignorando {} após falha ou timeout ({}): {}", coinId, fetchTimeout, e.getMessage());
+                            return Mono.empty();
+                        }), fetchParallelism);
+    }
+    
+    /**
+     * Busca dados de mercado das criptomoedas suportadas
+     */
+    public Flux<Crypto> getMarketData() {
+        return getMarketData(SUPPORTED_COINS.length);
+    }
+    
+    /**
+     * Busca dados de mercado de múltiplas criptomoedas
+     * @param limit Número máximo de criptomoedas a retornar (padrão: todas as suportadas)
+     */
+    public Flux<Crypto> getMarketData(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit deve ser maior que zero: " + limit);
+        }
+        String coinIds = String.join(",", SUPPORTED_COINS);
+        String url = "/coins/markets?vs_currency=usd&ids=" + coinIds + "&order=market_cap_desc&per_page=" + Math.min(limit, 250) + "&page=1&sparkline=false&price_change_percentage=24h";
+        
+        return fetchMarketData(url, "dados de mercado")
+                .doOnSubscribe(s -> logger.info("Buscando dados de mercado para até {} criptomoedas", limit));
+    }
+    
+    /**
+     * Busca as top N criptomoedas por market cap (sem especificar IDs)
+     * Útil para buscar as principais criptomoedas automaticamente.
+     * Limites acima de 250 são atendidos em várias páginas (ver {@link #getTopMarketPages(int)}).
+     */
+    public Flux<Crypto> getTopMarketData(int limit) {
+        return getTopMarketPages(limit)
+                // Uma página com falha deixaria um buraco no ranking: para no primeiro erro
+                .takeWhile(page -> {
+                    if (page.failed()) {
+                        logger.warn("Top {} interrompido na página {}: {}", limit, page.page(), page.error());
+                    }
+                    return !page.failed();
+                })
+                .concatMapIterable(MarketPage::cryptos)
+                .take(limit)
+                .doOnSubscribe(s -> logger.info("Buscando top {} criptomoedas por market cap", limit));
+    }
+    
+    /**
+     * Percorre as páginas de /coins/markets necessárias para cobrir {@code limit} moedas.
+     * As páginas são disparadas com espaçamento de {@code coingecko.crawl.page-interval}
+     * e no máximo {@code coingecko.crawl.concurrency} em andamento, mas emitidas na ordem
+     * do ranking. Uma página com falha é emitida com o erro em vez de abortar as demais.
+     * @throws IllegalArgumentException se {@code limit} for menor que 1
+     */
+    public Flux<MarketPage> getTopMarketPages(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit deve ser maior que zero: " + limit);
+        }
+        int pages = (limit + MAX_PER_PAGE - 1) / MAX_PER_PAGE;
+        
+        return Flux.interval(Duration.ZERO, crawlPageInterval)
+                .take(pages)
+                .onBackpressureBuffer()
+                .map(tick -> tick.intValue() + 1)
+                .flatMapSequential(page -> fetchTopMarketPage(page, limit), crawlConcurrency);
+    }
+    
+    /**
+     * Busca a página lógica {@code page} (blocos de 250). A última página pede só o que
+     * falta para {@code limit}: usa o menor per_page que cobre o resto e divide o
+     * deslocamento, para que a paginação da API continue alinhada.
+     */
+    private Mono<MarketPage> fetchTopMarketPage(int page, int limit) {
+        int offset = (page - 1) * MAX_PER_PAGE;
+        int remaining = Math.min(limit - offset, MAX_PER_PAGE);
+        int perPage = remaining;
+        while (offset % perPage != 0) {
+            perPage++;
+        }
+        int apiPage = offset / perPage + 1;
+        
+        // Não especificar IDs, apenas buscar as top por market cap
+        String url = "/coins/markets?vs_currency=usd&order=market_cap_desc&per_page=" + perPage + "&page=" + apiPage + "&sparkline=false&price_change_percentage=24h";
+        
+        return requestMarketData(url, "top criptomoedas (página " + page + ")")
+                .take(remaining)
+                .collectList()
+                .map(cryptos -> MarketPage.success(page, cryptos))
+                .onErrorResume(e -> {
+                    logger.error("Erro ao buscar página {} de top criptomoedas: {}", page, e.getMessage());
+                    return Mono.just(MarketPage.failure(page, e.getMessage()));
+                });
+    }
+    
+    private Flux<Crypto> fetchMarketData(String url, String context) {
+        return requestMarketData(url, context)
+                .onErrorResume(UpstreamRateLimitedException.class, e -> {
+                    // Rate limiting (429, fila cheia ou espera excedida)
+                    logger.warn("Sem cota na API CoinGecko para buscar {}: {}", context, e.getMessage());
+                    return Flux.empty();
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    logger.error("Erro HTTP {} ao buscar {}: {}", e.getStatusCode(), context, e.getMessage());
+                    return Flux.empty();
+                })
+                .onErrorResume(e -> {
+                    logger.error("Erro ao buscar {}: {}", context, e.getMessage(), e);
+                    return Flux.empty();
+                });
+    }
+    
+    private Flux<Crypto> requestMarketData(String url, String context) {
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                    clientResponse -> {
+                        logger.error("Erro HTTP {} ao buscar {}", clientResponse.statusCode(), context);
+                        return clientResponse.createException().flatMap(Mono::error);
+                    })
+                .bodyToFlux(DataBuffer.class)
+                .transform(body -> MarketDataStreamParser.parse(body, objectMapper.getFactory()));
+    }
+    
+    @Cacheable(value = "coinGeckoApi", key = "'health'")
+    public Mono<Boolean> isHealthy() {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            
+            // Usar cache para evitar requisições excessivas
+            Boolean cached = cachedHealthStatus;
+            if (cached != null && (now - lastHealthCheck) < HEALTH_CHECK_CACHE_DURATION) {
+                logger.debug("Retornando status de saúde do cache");
+                return Mono.just(cached);
+            }
+            
+            return webClient.get()
+                    .uri("/ping")
+                    .retrieve()
+                    .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
+                        clientResponse -> {
+                            logger.warn("Erro HTTP {} ao verificar saúde da API", clientResponse.statusCode());
+                            return clientResponse.createException().flatMap(Mono::error);
+                        })
+                    .bodyToMono(String.class)
+                    .map(result -> result.contains("To the Moon"))
+                    .defaultIfEmpty(false)
+                    .doOnNext(healthy -> {
+                        // Atualizar cache
+                        cachedHealthStatus = healthy;
+                        lastHealthCheck = now;
+                        
+                        if (healthy) {
+                            logger.debug("API CoinGecko está funcionando");
+                        } else {
+                            logger.warn("API CoinGecko não está respondendo corretamente");
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        // Rate limiting - não logar como erro, apenas cache como false
+                        if (e instanceof UpstreamRateLimitedException) {
+                            logger.debug("Rate limit ao verificar saúde - usando cache");
+                            if (cachedHealthStatus == null) {
+                                cachedHealthStatus = false;
+                                lastHealthCheck = now;
+                            }
+                            return Mono.just(cachedHealthStatus);
+                        }
+                        
+                        logger.error("Erro ao verificar saúde da API: {}", e.getMessage());
+                        cachedHealthStatus = false;
+                        lastHealthCheck = now;
+                        return Mono.just(false);
+                    });
+        });
+    }
+    
+    /**
+     * Busca preços simples de múltiplas criptomoedas
+     * Endpoint: /simple/price
+     * Formato mais compacto e rápido que /coins/markets
+     * Retorna formato: { "bitcoin": { "usd": 106922, "usd_market_cap": ..., ... } }
+     * Requisições simultâneas com os mesmos IDs (em qualquer ordem) compartilham uma chamada.
+     */
+    public Mono<Map<String, Object>> getSimplePrice(String coinIds, String vsCurrency) {
+        String ids = normalizeIds(coinIds);
+        String currency = vsCurrency.trim().toLowerCase(Locale.ROOT);
+        String url = "/simple/price?ids=" + ids + "&vs_currencies=" + currency +
+                    "&include_market_cap=true&include_24hr_vol=true&include_24hr_change=true&include_last_updated_at=true";
+        
+        return requestCoalescer.coalesce("simple-price", ids + "|" + currency, () -> webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(String.class)
+                .doOnSubscribe(s -> logger.info("Buscando preços simples para: {} vs {}", ids, currency))
+                .map(jsonResponse -> parseSimplePrice(jsonResponse, currency))
+                .onErrorResume(e -> {
+                    logger.error("Erro ao buscar preços simples: {}", e.getMessage(), e);
+                    return Mono.just(new HashMap<>());
+                })
+                .defaultIfEmpty(new HashMap<>()));
+    }
+    
+    /**
+     * Busca criptomoedas, NFTs e categorias
+     * Endpoint: /search
+     * Útil para buscar por nome ou símbolo
+     */
+    public Mono<Map<String, Object>> search(String query) {
+        String normalizedQuery = query.trim().toLowerCase(Locale.ROOT);
+        String url = "/search?query=" + java.net.URLEncoder.encode(normalizedQuery, java.nio.charset.StandardCharsets.UTF_8);
+        
+        return requestCoalescer.coalesce("search", normalizedQuery, () -> webClient.get()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(String.class)
+                .doOnSubscribe(s -> logger.info("Buscando: {}", normalizedQuery))
+                .map(this::parseSearch)
+                .onErrorResume(e -> {
+                    logger.error("Erro ao buscar: {}", e.getMessage(), e);
+                    return Mono.just(new HashMap<>());
+                })
+                .defaultIfEmpty(new HashMap<>()));
+    }
+    
+    /**
+     * Normaliza uma lista de IDs separada por vírgula: minúsculas, sem espaços,
+     * sem duplicatas e ordenada, para que "ethereum, Bitcoin" e "bitcoin,ethereum"
+     * resultem na mesma requisição.
+     */
+    private static String normalizeIds(String coinIds) {
+        return Arrays.stream(coinIds.split(","))
+                .map(id -> id.trim().toLowerCase(Locale.ROOT))
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+    
+    private java.util.Optional<Crypto> parseCryptoData(String jsonResponse) {
+        try {
+            JsonNode root = objectMapper.readTree(jsonResponse);
+            
+            Crypto crypto = new Crypto();
+            crypto.setName(root.get("name").asText());
+            crypto.setSymbol(root.get("symbol").asText().toUpperCase());
+            
+            JsonNode marketData = root.get("market_data");
+            if (marketData != null) {
+                crypto.setCurrentPrice(new BigDecimal(marketData.get("current_price").get("usd").asText()));
+                crypto.setMarketCap(new BigDecimal(marketData.get("market_cap").get("usd").asText()));
+                crypto.setVolume24h(new BigDecimal(marketData.get("total_volume").get("usd").asText()));
+                
+                JsonNode priceChange = marketData.get("price_change_percentage_24h");
+                if (priceChange != null) {
+                    crypto.setChange24h(new BigDecimal(priceChange.asText()));
+                }
+            }
+            
+            JsonNode description = root.get("description");
+            if (description != null && description.get("en") != null) {
+                crypto.setDescription(description.get("en").asText());
+            }
+            
+            // URL da imagem
+            JsonNode image = root.get("image");
+            if (image != null && !image.isNull()) {
+                JsonNode imageSmall = image.get("small");
+                if (imageSmall != null && !imageSmall.isNull()) {
+                    crypto.setImageUrl(imageSmall.asText());
+                } else if (image.isTextual()) {
+                    crypto.setImageUrl(image.asText());
+                }
+            }
+            
+            logger.info("Dados parseados para: {} - Preço: ${}", crypto.getName(), crypto.getCurrentPrice());
+            return java.util.Optional.of(crypto);
+            
+        } catch (Exception e) {
+            logger.error("Erro ao fazer parse dos dados: {}", e.getMessage());
+            return java.util.Optional.empty();
+        }
+    }
+    
+    private Map<String, Object> parseSimplePrice(String jsonResponse, String vsCurrency) {
+        Map<String, Object> result = new HashMap<>();
+        if (jsonResponse.isEmpty()) {
+            return result;
+        }
+        
+        try {
+            JsonNode root = objectMapper.readTree(jsonResponse);
+            
+            // Converter JsonNode para Map mantendo o formato original
+            root.fields().forEachRemaining(entry -> {
+                JsonNode coinData = entry.getValue();
+                Map<String, Object> coinInfo = new HashMap<>();
+                
+                String currencyKey = vsCurrency.toLowerCase();
+                
+                // Preço
+                if (coinData.has(currencyKey)) {
+                    coinInfo.put(currencyKey, coinData.get(currencyKey).asDouble());
+                }
+                
+                // Market Cap
+                if (coinData.has(currencyKey + "_market_cap")) {
+                    coinInfo.put(currencyKey + "_market_cap", coinData.get(currencyKey + "_market_cap").asDouble());
+                }
+                
+                // Volume 24h
+                if (coinData.has(currencyKey + "_24h_vol")) {
+                    coinInfo.put(currencyKey + "_24h_vol", coinData.get(currencyKey + "_24h_vol").asDouble());
+                }
+                
+                // Mudança 24h
+                if (coinData.has(currencyKey + "_24h_change")) {
+                    coinInfo.put(currencyKey + "_24h_change", coinData.get(currencyKey + "_24h_change").asDouble());
+                }
+                
+                // Última atualização
+                if (coinData.has("last_updated_at")) {
+                    coinInfo.put("last_updated_at", coinData.get("last_updated_at").asLong());
+                }
+                
+                result.put(entry.getKey(), coinInfo);
+            });
+            
+            logger.info("Preços simples obtidos para {} moedas", result.size());
+        } catch (Exception e) {
+            logger.error("Erro ao processar preços simples: {}", e.getMessage(), e);
+        }
+        
+        return result;
+    }
+    
+    private Map<String, Object> parseSearch(String jsonResponse) {
+        Map<String, Object> result = new HashMap<>();
+        if (jsonResponse.isEmpty()) {
+            return result;
+        }
+        
+        try {
+            JsonNode root = objectMapper.readTree(jsonResponse);
+            
+            // Processar coins
+            if (root.has("coins")) {
+                List<Map<String, Object>> coins = new ArrayList<>();
+                root.get("coins").forEach(coin -> {
+                    Map<String, Object> coinInfo = new HashMap<>();
+                    if (coin.has("item")) {
+                        JsonNode item = coin.get("item");
+                        coinInfo.put("id", item.has("id") ? item.get("id").asText() : null);
+                        coinInfo.put("name", item.has("name") ? item.get("name").asText() : null);
+                        coinInfo.put("symbol", item.has("symbol") ? item.get("symbol").asText() : null);
+                        coinInfo.put("market_cap_rank", item.has("market_cap_rank") ? item.get("market_cap_rank").asInt() : null);
+                        
+                        if (item.has("data")) {
+                            JsonNode data = item.get("data");
+                            if (data.has("price")) {
+                                coinInfo.put("price", data.get("price").asDouble());
+                            }
+                            if (data.has("market_cap")) {
+                                coinInfo.put("market_cap", data.get("market_cap").asText());
+                            }
+                        }
+                    }
+                    coins.add(coinInfo);
+                });
+                result.put("coins", coins);
+            }
+            
+            // Processar NFTs
+            if (root.has("nfts")) {
+                List<Map<String, Object>> nfts = new ArrayList<>();
+                root.get("nfts").forEach(nft -> {
+                    Map<String, Object> nftInfo = new HashMap<>();
+                    nftInfo.put("id", nft.has("id") ? nft.get("id").asText() : null);
+                    nftInfo.put("name", nft.has("name") ? nft.get("name").asText() : null);
+                    nftInfo.put("symbol", nft.has("symbol") ? nft.get("symbol").asText() : null);
+                    nfts.add(nftInfo);
+                });
+                result.put("nfts", nfts);
+            }
+            
+            // Processar categories
+            if (root.has("categories")) {
+                List<Map<String, Object>> categories = new ArrayList<>();
+                root.get("categories").forEach(category -> {
+                    Map<String, Object> categoryInfo = new HashMap<>();
+                    categoryInfo.put("id", category.has("id") ? category.get("id").asInt() : null);
+                    categoryInfo.put("name", category.has("name") ? category.get("name").asText() : null);
+                    categoryInfo.put("slug", category.has("slug") ? category.get("slug").asText() : null);
+                    categories.add(categoryInfo);
+                });
+                result.put("categories", categories);
+            }
+            
+            logger.info("Busca realizada: {} coins, {} nfts, {} categories",
+                       ((List<?>) result.getOrDefault("coins", new ArrayList<>())).size(),
+                       ((List<?>) result.getOrDefault("nfts", new ArrayList<>())).size(),
+                       ((List<?>) result.getOrDefault("categories", new ArrayList<>())).size());
+        } catch (Exception e) {
+            logger.error("Erro ao processar resultado da busca: {}", e.getMessage(), e);
+        }
+        
+        return result;
+    }
+}
@@ -1,18 +1,23 @@
 package com.coingecko.service;
 
 import com.coingecko.model.Crypto;
-import com.coingecko.repository.CryptoRepository;
+import com.coingecko.service.UpstreamRateLimiter.Priority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class RealTimeDataService {
@@ -20,15 +25,27 @@ public class RealTimeDataService {
     private static final Logger logger = LoggerFactory.getLogger(RealTimeDataService.class);
     
     @Autowired
-    private CoinGeckoApiService coinGeckoApiService;
+    private ReactiveCoinGeckoApiService reactiveApiService;
     
     @Autowired
-    private CryptoRepository cryptoRepository;
+    private CryptoService cryptoService;
     
     @Autowired
     private WebSocketService webSocketService;
     
-    private boolean isRunning = false;
+    @Autowired
+    private MarketChangeDetector changeDetector;
+    
+    @Autowired
+    private MarketDeltaState marketDeltaState;
+    
+    @Value("${coingecko.realtime.auto-start:false}")
+    private boolean autoStart;
+    
+    private volatile boolean isRunning = false;
+    
+    // Impede que dois ciclos de atualização se sobreponham
+    private final AtomicBoolean updateInFlight = new AtomicBoolean();
     
     // Inicializar automaticamente quando a aplicação iniciar
     @PostConstruct
@@ -37,78 +54,96 @@ public class RealTimeDataService {
         // Não iniciar automaticamente, aguardar comando manual
     }
     
-    @Scheduled(fixedRate = 30000) // A cada 30 segundos
+    /**
+     * Usa os preços já persistidos como base da detecção de mudanças: após um reinício,
+     * a primeira atualização grava e envia só o que mudou, sem nova sincronização completa.
+     * Com {@code coingecko.realtime.auto-start} as atualizações começam sem /api/realtime/start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmStart() {
+        List<Crypto> persisted = cryptoService.findAll();
+        changeDetector.record(persisted);
+        marketDeltaState.seed(persisted);
+        logger.info("{} criptomoedas persistidas carregadas como último valor publicado", persisted.size());
+        
+        if (autoStart) {
+            isRunning = true;
+            logger.info("Atualizações em tempo real iniciadas automaticamente");
+        }
+    }
+    
+    // fixedRate com assinatura explícita: a thread do scheduler só dispara o ciclo e não
+    // espera o Mono (que pode aguardar o rate limiter); o guarda abaixo evita sobreposição
+    @Scheduled(fixedRate = 30000)
     public void updateCryptoData() {
         if (!isRunning) {
             logger.debug("Atualizações em tempo real estão desabilitadas");
             return;
         }
+        if (!updateInFlight.compareAndSet(false, true)) {
+            logger.warn("Atualização anterior ainda em andamento, pulando este ciclo");
+            return;
+        }
         
-        try {
-            logger.info("Iniciando atualização de dados em tempo real...");
-            
-            // Verificar se a API está funcionando
-            if (!coinGeckoApiService.isHealthy()) {
-                logger.warn("API CoinGecko não está funcionando, pulando atualização");
-                return;
-            }
-            
-            List<Crypto> marketData = coinGeckoApiService.getMarketData();
-            
-            if (marketData == null || marketData.isEmpty()) {
-                logger.warn("Nenhum dado de mercado recebido da API");
-                return;
-            }
-            
-            logger.info("Recebidos {} criptomoedas da API", marketData.size());
-            
-            int updatedCount = 0;
-            for (Crypto apiCrypto : marketData) {
-                try {
-                    Optional<Crypto> existingCrypto = cryptoRepository.findBySymbol(apiCrypto.getSymbol());
-                    
-                    if (existingCrypto.isPresent()) {
-                        Crypto crypto = existingCrypto.get();
-                        
-                        // Sempre atualizar os dados e enviar via WebSocket
-                        crypto.setCurrentPrice(apiCrypto.getCurrentPrice());
-                        crypto.setMarketCap(apiCrypto.getMarketCap());
-                        crypto.setVolume24h(apiCrypto.getVolume24h());
-                        crypto.setChange24h(apiCrypto.getChange24h());
-                        
-                        cryptoRepository.save(crypto);
-                        logger.info("Atualizado: {} - Preço: ${}", crypto.getName(), crypto.getCurrentPrice());
-                        
-                        // Sempre enviar atualização via WebSocket
-                        if (webSocketService != null) {
-                            webSocketService.sendCryptoUpdate(crypto);
-                            updatedCount++;
-                        } else {
-                            logger.error("WebSocketService não está disponível");
-                        }
-                    } else {
-                        Crypto created = cryptoRepository.save(apiCrypto);
-                        if (webSocketService != null) {
-                            webSocketService.sendCryptoUpdate(created);
-                            updatedCount++;
-                        } else {
-                            logger.error("WebSocketService não está disponível");
-                        }
+        refreshMarketData()
+                .doFinally(signal -> updateInFlight.set(false))
+                .subscribe();
+    }
+    
+    private Mono<Void> refreshMarketData() {
+        return reactiveApiService.isHealthy()
+                .flatMap(healthy -> {
+                    // Verificar se a API está funcionando
+                    if (!healthy) {
+                        logger.warn("API CoinGecko não está funcionando, pulando atualização");
+                        return Mono.empty();
+                    }
+                    return reactiveApiService.getMarketData().collectList();
+                })
+                .flatMap(marketData -> {
+                    if (marketData.isEmpty()) {
+                        logger.warn("Nenhum dado de mercado recebido da API");
+                        return Mono.empty();
                     }
-                } catch (Exception e) {
-                    logger.error("Erro ao processar criptomoeda {}: {}", apiCrypto.getSymbol(), e.getMessage());
-                }
-            }
-            
-            logger.info("Atualização de dados concluída. {} criptomoedas processadas, {} enviadas via WebSocket.", 
-                       marketData.size(), updatedCount);
-            
-        } catch (Exception e) {
-            logger.error("Erro durante atualização de dados: {}", e.getMessage(), e);
+                    
+                    logger.info("Recebidos {} criptomoedas da API", marketData.size());
+                    
+                    // Persistência JPA é bloqueante: executar fora das threads do event loop
+                    return Mono.fromRunnable(() -> applyMarketData(marketData))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .doOnSubscribe(s -> logger.info("Iniciando atualização de dados em tempo real..."))
+                .onErrorResume(e -> {
+                    logger.error("Erro durante atualização de dados: {}", e.getMessage(), e);
+                    return Mono.empty();
+                })
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.SCHEDULED))
+                .then();
+    }
+    
+    private void applyMarketData(List<Crypto> marketData) {
+        // Moedas idênticas ao último valor publicado não geram escrita nem mensagem
+        List<Crypto> changed = changeDetector.filterChanged(marketData);
+        if (changed.isEmpty()) {
+            logger.info("Nenhuma das {} criptomoedas mudou desde a última atualização", marketData.size());
+            return;
         }
+        
+        // Uma consulta, merge em memória e flush em lote em uma única transação
+        List<Crypto> persisted = cryptoService.upsertMarketData(changed);
+        changeDetector.record(persisted);
+        
+        // Um único frame por ciclo com todas as moedas alteradas, enviado após o commit
+        webSocketService.sendMarketTick(persisted);
+        webSocketService.sendMarketDelta(persisted);
+        
+        logger.info("Atualização de dados concluída. {} criptomoedas recebidas, {} alteradas, {} persistidas e enviadas via WebSocket.", 
+                   marketData.size(), changed.size(), persisted.size());
     }
     
     public void startRealTimeUpdates() {
+        // Primeira atualização após o início grava e envia todas as moedas
+        changeDetector.reset();
         isRunning = true;
         logger.info("Atualizações em tempo real iniciadas");
     }
@@ -122,37 +157,31 @@ public class RealTimeDataService {
         return isRunning;
     }
     
+    public Map<String, Object> getChangeDetectionStatus() {
+        return changeDetector.getStatus();
+    }
+    
     @CacheEvict(value = "cryptoData", allEntries = true)
     public void clearCache() {
         logger.info("Cache de dados de criptomoedas limpo");
     }
     
-    @Transactional
-    public void syncInitialData() {
-        try {
-            logger.info("Sincronizando dados iniciais com CoinGecko...");
-            
-            List<Crypto> marketData = coinGeckoApiService.getMarketData();
-            
-            for (Crypto apiCrypto : marketData) {
-                Optional<Crypto> existingCrypto = cryptoRepository.findBySymbol(apiCrypto.getSymbol());
-                
-                if (existingCrypto.isPresent()) {
-                    Crypto crypto = existingCrypto.get();
-                    crypto.setCurrentPrice(apiCrypto.getCurrentPrice());
-                    crypto.setMarketCap(apiCrypto.getMarketCap());
-                    crypto.setVolume24h(apiCrypto.getVolume24h());
-                    crypto.setChange24h(apiCrypto.getChange24h());
-                    cryptoRepository.save(crypto);
-                } else {
-                    cryptoRepository.save(apiCrypto);
-                }
-            }
-            
-            logger.info("Sincronização inicial concluída. {} criptomoedas atualizadas.", marketData.size());
-            
-        } catch (Exception e) {
-            logger.error("Erro durante sincronização inicial: {}", e.getMessage());
-        }
+    public Mono<Integer> syncInitialData() {
+        return reactiveApiService.getMarketData()
+                .collectList()
+                .doOnSubscribe(s -> logger.info("Sincronizando dados iniciais com CoinGecko..."))
+                .flatMap(marketData -> Mono.fromCallable(() -> {
+                            List<Crypto> persisted = cryptoService.upsertMarketData(marketData);
+                            changeDetector.record(persisted);
+                            webSocketService.sendMarketDelta(persisted);
+                            return persisted.size();
+                        })
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .doOnNext(count -> logger.info("Sincronização inicial concluída. {} criptomoedas atualizadas.", count))
+                .onErrorResume(e -> {
+                    logger.error("Erro durante sincronização inicial: {}", e.getMessage());
+                    return Mono.just(0);
+                })
+                .contextWrite(UpstreamRateLimiter.withPriority(Priority.SCHEDULED));
     }
 }
@@ -0,0 +1,87 @@
+package com.coingecko.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicação de chamadas upstream em andamento (single-flight).
+ * Enquanto uma requisição para uma chave está em voo, chamadas idênticas recebem o
+ * mesmo Mono em vez de disparar outra requisição; a entrada é removida assim que a
+ * chamada termina, então o resultado não fica em cache aqui.
+ */
+@Component
+public class RequestCoalescer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RequestCoalescer.class);
+    
+    private final Map<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    
+    /**
+     * @param operation nome da operação, usado nas estatísticas (ex.: "simple-price")
+     * @param key parâmetros normalizados da requisição
+     * @param call chamada upstream, executada apenas pelo primeiro chamador
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String operation, String key, Supplier<Mono<T>> call) {
+        String flightKey = operation + ":" + key;
+        
+        return Mono.defer(() -> {
+            Object[] created = new Object[1];
+            Mono<?> shared = inFlight.computeIfAbsent(flightKey, k -> {
+                Mono<T> flight = call.get()
+                        .doFinally(signal -> inFlight.remove(k, created[0]))
+                        .cache();
+                created[0] = flight;
+                return flight;
+            });
+            
+            Counters stats = counters.computeIfAbsent(operation, op -> new Counters());
+            if (shared == created[0]) {
+                stats.misses.incrementAndGet();
+            } else {
+                stats.hits.incrementAndGet();
+                logger.debug("Requisição {} agrupada com chamada em andamento", flightKey);
+            }
+            return (Mono<T>) shared;
+        });
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        long totalHits = 0;
+        long totalMisses = 0;
+        
+        Map<String, Object> operations = new HashMap<>();
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            long hits = entry.getValue().hits.get();
+            long misses = entry.getValue().misses.get();
+            totalHits += hits;
+            totalMisses += misses;
+            
+            Map<String, Object> operation = new HashMap<>();
+            operation.put("coalesced", hits);
+            operation.put("upstreamCalls", misses);
+            operations.put(entry.getKey(), operation);
+        }
+        
+        status.put("coalesced", totalHits);
+        status.put("upstreamCalls", totalMisses);
+        status.put("inFlight", inFlight.size());
+        status.put("operations", operations);
+        return status;
+    }
+    
+    private static class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+    }
+}
@@ -0,0 +1,109 @@
+package com.coingecko.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acompanha as inscrições STOMP por destino para que o WebSocketService só serialize e
+ * envie mensagens de tópicos com pelo menos um inscrito.
+ * Destinos com curinga (ex.: {@code /topic/crypto/*}) são tratados como padrões, do mesmo
+ * jeito que o broker simples os interpreta.
+ */
+@Component
+public class SubscriptionTracker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionTracker.class);
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    
+    // destino -> número de inscrições
+    private final Map<String, Integer> destinations = new ConcurrentHashMap<>();
+    private final Map<String, Integer> patterns = new ConcurrentHashMap<>();
+    // sessão -> (id da inscrição -> destino), para desfazer no unsubscribe/desconexão
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        String destination = accessor.getDestination();
+        if (sessionId == null || subscriptionId == null || destination == null) {
+            return;
+        }
+        
+        String previous = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        if (previous != null) {
+            decrement(previous);
+        }
+        registry(destination).merge(destination, 1, Integer::sum);
+        logger.debug("Sessão {} inscrita em {}", sessionId, destination);
+    }
+    
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String destination = subscriptions.remove(accessor.getSubscriptionId());
+        if (destination != null) {
+            decrement(destination);
+        }
+    }
+    
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+    
+    /**
+     * Indica se alguma sessão receberia uma mensagem enviada para {@code destination}.
+     */
+    public boolean hasSubscribers(String destination) {
+        if (destinations.containsKey(destination)) {
+            return true;
+        }
+        for (String pattern : patterns.keySet()) {
+            if (pathMatcher.match(pattern, destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("sessions", sessions.size());
+        status.put("destinations", destinations.size() + patterns.size());
+        status.put("subscriptions", sum(destinations) + sum(patterns));
+        return status;
+    }
+    
+    private void decrement(String destination) {
+        registry(destination).computeIfPresent(destination, (key, count) -> count > 1 ? count - 1 : null);
+    }
+    
+    private Map<String, Integer> registry(String destination) {
+        return pathMatcher.isPattern(destination) ? patterns : destinations;
+    }
+    
+    private static int sum(Map<String, Integer> counts) {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,169 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.TransactionFileFormat;
+import com.coingecko.model.Transaction;
+import com.coingecko.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportação de transações em NDJSON ou CSV direto para a resposta.
+ * As linhas vêm de um cursor do banco e cada entidade é desanexada depois de escrita,
+ * então o uso de memória não depende do número de transações.
+ */
+@Service
+public class TransactionExportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TransactionExportService.class);
+    
+    // A cada bloco: envia o que já foi escrito e limpa o contexto de persistência
+    private static final int FLUSH_EVERY = 500;
+    
+    private static final String CSV_HEADER =
+        "id,portfolioId,cryptoId,symbol,type,quantity,pricePerUnit,totalValue,transactionDate,notes\n";
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Escreve as transações filtradas em {@code out}. Filtros nulos são ignorados.
+     * Retorna o número de linhas exportadas.
+     */
+    @Transactional(readOnly = true)
+    public long export(TransactionFileFormat format, Long portfolioId, LocalDateTime startDate, LocalDateTime endDate,
+                       OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        long rows;
+        try (Stream<Transaction> transactions = transactionRepository.streamForExport(portfolioId, startDate, endDate)) {
+            rows = format == TransactionFileFormat.CSV
+                ? writeCsv(transactions.iterator(), out)
+                : writeNdjson(transactions.iterator(), out);
+        }
+        logger.info("Exportação {} concluída: {} transações em {} ms",
+                format, rows, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+    
+    private long writeNdjson(Iterator<Transaction> transactions, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (transactions.hasNext()) {
+                Transaction t = transactions.next();
+                json.writeStartObject();
+                json.writeNumberField("id", t.getId());
+                json.writeNumberField("portfolioId", t.getPortfolio().getId());
+                json.writeNumberField("cryptoId", t.getCrypto().getId());
+                json.writeStringField("symbol", t.getCrypto().getSymbol());
+                json.writeStringField("type", t.getType().name());
+                writeDecimal(json, "quantity", t.getQuantity());
+                writeDecimal(json, "pricePerUnit", t.getPricePerUnit());
+                writeDecimal(json, "totalValue", t.getTotalValue());
+                json.writeStringField("transactionDate", t.getTransactionDate() != null ? t.getTransactionDate().toString() : null);
+                json.writeStringField("notes", t.getNotes());
+                json.writeEndObject();
+                json.writeRaw('\n');
+                
+                if (++rows % FLUSH_EVERY == 0) {
+                    json.flush();
+                }
+                release(t, rows);
+            }
+        }
+        return rows;
+    }
+    
+    private long writeCsv(Iterator<Transaction> transactions, OutputStream out) throws IOException {
+        long rows = 0;
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        csv.write(CSV_HEADER);
+        while (transactions.hasNext()) {
+            Transaction t = transactions.next();
+            csv.write(String.valueOf(t.getId()));
+            csv.write(',');
+            csv.write(String.valueOf(t.getPortfolio().getId()));
+            csv.write(',');
+            csv.write(String.valueOf(t.getCrypto().getId()));
+            csv.write(',');
+            csv.write(csvField(t.getCrypto().getSymbol()));
+            csv.write(',');
+            csv.write(t.getType().name());
+            csv.write(',');
+            csv.write(plain(t.getQuantity()));
+            csv.write(',');
+            csv.write(plain(t.getPricePerUnit()));
+            csv.write(',');
+            csv.write(plain(t.getTotalValue()));
+            csv.write(',');
+            csv.write(t.getTransactionDate() != null ? t.getTransactionDate().toString() : "");
+            csv.write(',');
+            csv.write(csvField(t.getNotes()));
+            csv.write('\n');
+            
+            if (++rows % FLUSH_EVERY == 0) {
+                csv.flush();
+            }
+            release(t, rows);
+        }
+        csv.flush();
+        return rows;
+    }
+    
+    /**
+     * Desanexa a transação escrita; a cada bloco limpa o contexto inteiro para soltar
+     * também criptomoedas e proxies de portfólio carregados junto.
+     */
+    private void release(Transaction transaction, long rows) {
+        entityManager.detach(transaction);
+        if (rows % FLUSH_EVERY == 0) {
+            entityManager.clear();
+        }
+    }
+    
+    private static void writeDecimal(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+    
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : "";
+    }
+    
+    // RFC 4180: aspas quando houver vírgula, aspas ou quebra de linha
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
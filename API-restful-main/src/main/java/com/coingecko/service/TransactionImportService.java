@@ -0,0 +1,488 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.TransactionFileFormat;
+import com.coingecko.dto.TransactionImportRow;
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Portfolio;
+import com.coingecko.model.Transaction;
+import com.coingecko.model.Transaction.TransactionType;
+import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PortfolioRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Importação em massa de transações (NDJSON ou CSV, mesmas colunas da exportação).
+ * O arquivo é lido em lotes: os ids de portfólio e criptomoeda de cada lote são validados
+ * com uma consulta só, as transações são inseridas em lotes JDBC e o contexto de
+ * persistência é limpo a cada lote. Posições e valor total de cada portfólio afetado são
+ * recalculados uma única vez, no final; portfólios cujo recálculo falhou são listados em
+ * {@code failedRebuilds}.
+ * Linhas inválidas são ignoradas e relatadas; cada lote é confirmado em sua própria transação.
+ */
+@Service
+public class TransactionImportService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TransactionImportService.class);
+    private static final int MAX_REPORTED_ERRORS = 100;
+    
+    @Autowired
+    private PortfolioRepository portfolioRepository;
+    
+    @Autowired
+    private CryptoRepository cryptoRepository;
+    
+    @Autowired
+    private PortfolioService portfolioService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${api.import.batch-size:1000}")
+    private int batchSize;
+    
+    public Map<String, Object> importTransactions(TransactionFileFormat format, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowReader rows = format == TransactionFileFormat.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader);
+        ImportResult result = new ImportResult();
+        
+        try {
+            List<NumberedRow> chunk = new ArrayList<>(batchSize);
+            NumberedRow row;
+            while ((row = nextRow(rows, result)) != null) {
+                chunk.add(row);
+                if (chunk.size() >= batchSize) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, result);
+            }
+        } finally {
+            // Também após falha: os lotes já confirmados precisam refletir nas posições
+            rebuildAffectedPortfolios(result);
+        }
+        
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Importação {} concluída: {} transações importadas, {} rejeitadas, {} portfólios recalculados, {} com falha em {} ms",
+                format, result.imported, result.rejected, result.affectedPortfolios.size() - result.failedRebuilds.size(),
+                result.failedRebuilds.size(), durationMillis);
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("format", format);
+        response.put("rowsRead", result.rowsRead);
+        response.put("imported", result.imported);
+        response.put("rejected", result.rejected);
+        response.put("errors", result.errors);
+        response.put("affectedPortfolios", result.affectedPortfolios.size());
+        response.put("failedRebuilds", result.failedRebuilds);
+        response.put("durationMillis", durationMillis);
+        return response;
+    }
+    
+    // Um portfólio com falha não impede os demais nem substitui a exceção da importação;
+    // as transações dele já estão gravadas e o recálculo pode ser refeito depois
+    private void rebuildAffectedPortfolios(ImportResult result) {
+        for (Long portfolioId : result.affectedPortfolios) {
+            try {
+                portfolioService.rebuildPositions(portfolioId);
+            } catch (RuntimeException e) {
+                logger.error("Erro ao recalcular posições do portfólio {} após importação: {}", portfolioId, e.getMessage(), e);
+                result.failedRebuilds.add(portfolioId);
+            }
+        }
+    }
+    
+    // Próxima linha válida sintaticamente; linhas malformadas são registradas e puladas
+    private NumberedRow nextRow(RowReader rows, ImportResult result) throws IOException {
+        while (true) {
+            try {
+                TransactionImportRow row = rows.next();
+                if (row == null) {
+                    return null;
+                }
+                result.rowsRead++;
+                return new NumberedRow(rows.rowNumber(), row);
+            } catch (InvalidRowException e) {
+                result.rowsRead++;
+                result.reject(rows.rowNumber(), e.getMessage());
+            }
+        }
+    }
+    
+    private void importChunk(List<NumberedRow> chunk, ImportResult result) {
+        Set<Long> portfolioIds = new HashSet<>();
+        Set<Long> cryptoIds = new HashSet<>();
+        for (NumberedRow numbered : chunk) {
+            portfolioIds.add(numbered.row().portfolioId());
+            cryptoIds.add(numbered.row().cryptoId());
+        }
+        
+        List<NumberedRow> persisted = new ArrayList<>(chunk.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                result.resolvePortfolios(portfolioIds, portfolioRepository::findExistingIds);
+                result.resolveCryptos(cryptoIds, cryptoRepository::findExistingIds);
+                
+                for (NumberedRow numbered : chunk) {
+                    String error = validate(numbered.row(), result);
+                    if (error != null) {
+                        result.reject(numbered.number(), error);
+                        continue;
+                    }
+                    entityManager.persist(toTransaction(numbered.row()));
+                    persisted.add(numbered);
+                }
+                
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException e) {
+            // Erro que a validação não previu: o lote inteiro foi desfeito, os demais seguem
+            logger.error("Lote de {} transações desfeito na importação: {}", persisted.size(), e.getMessage());
+            for (NumberedRow numbered : persisted) {
+                result.reject(numbered.number(), "Lote desfeito: " + e.getMessage());
+            }
+            return;
+        }
+        
+        // Contabiliza só depois do commit
+        result.imported += persisted.size();
+        for (NumberedRow numbered : persisted) {
+            result.affectedPortfolios.add(numbered.row().portfolioId());
+        }
+    }
+    
+    private String validate(TransactionImportRow row, ImportResult result) {
+        if (row.portfolioId() == null || !result.knownPortfolios.contains(row.portfolioId())) {
+            return "Portfólio não encontrado com id: " + row.portfolioId();
+        }
+        if (row.cryptoId() == null || !result.knownCryptos.contains(row.cryptoId())) {
+            return "Criptomoeda não encontrada com id: " + row.cryptoId();
+        }
+        if (parseType(row.type()) == null) {
+            return "Tipo de transação inválido: " + row.type();
+        }
+        if (row.quantity() == null || row.quantity().signum() <= 0) {
+            return "Quantidade deve ser maior que zero";
+        }
+        if (!fits(row.quantity(), 20, 8)) {
+            return "Quantidade excede o limite de 12 dígitos inteiros";
+        }
+        if (row.pricePerUnit() == null || row.pricePerUnit().signum() <= 0) {
+            return "Preço deve ser maior que zero";
+        }
+        if (!fits(row.pricePerUnit(), 20, 8)) {
+            return "Preço excede o limite de 12 dígitos inteiros";
+        }
+        // Sem valor total no arquivo, a entidade usa quantidade x preço
+        BigDecimal totalValue = row.totalValue() != null ? row.totalValue() : row.quantity().multiply(row.pricePerUnit());
+        if (totalValue.signum() <= 0) {
+            return "Valor total deve ser maior que zero";
+        }
+        if (!fits(totalValue, 20, 2)) {
+            return "Valor total excede o limite de 18 dígitos inteiros";
+        }
+        if (row.notes() != null && row.notes().length() > 500) {
+            return "Observação excede 500 caracteres";
+        }
+        return null;
+    }
+    
+    private Transaction toTransaction(TransactionImportRow row) {
+        Transaction transaction = new Transaction();
+        // Referências sem SELECT: os ids já foram validados no lote
+        transaction.setPortfolio(entityManager.getReference(Portfolio.class, row.portfolioId()));
+        transaction.setCrypto(entityManager.getReference(Crypto.class, row.cryptoId()));
+        transaction.setType(parseType(row.type()));
+        transaction.setQuantity(row.quantity());
+        transaction.setPricePerUnit(row.pricePerUnit());
+        if (row.totalValue() != null) {
+            transaction.setTotalValue(row.totalValue());
+        }
+        transaction.setNotes(row.notes());
+        transaction.setTransactionDate(row.transactionDate());
+        return transaction;
+    }
+    
+    // Mesma regra das colunas DECIMAL(precision, scale): casas extras são arredondadas,
+    // dígitos inteiros além de precision - scale estouram
+    private static boolean fits(BigDecimal value, int precision, int scale) {
+        BigDecimal rounded = value.setScale(scale, RoundingMode.HALF_UP);
+        return rounded.precision() - rounded.scale() <= precision - scale;
+    }
+    
+    private static TransactionType parseType(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return TransactionType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private record NumberedRow(long number, TransactionImportRow row) {
+    }
+    
+    /**
+     * Contadores da importação e ids já validados (evita consultar o mesmo id em todo lote).
+     */
+    private static final class ImportResult {
+        
+        private final Set<Long> knownPortfolios = new HashSet<>();
+        private final Set<Long> missingPortfolios = new HashSet<>();
+        private final Set<Long> knownCryptos = new HashSet<>();
+        private final Set<Long> missingCryptos = new HashSet<>();
+        private final Set<Long> affectedPortfolios = new LinkedHashSet<>();
+        private final List<Long> failedRebuilds = new ArrayList<>();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        
+        void resolvePortfolios(Set<Long> ids, Function<Set<Long>, List<Long>> lookup) {
+            resolve(ids, knownPortfolios, missingPortfolios, lookup);
+        }
+        
+        void resolveCryptos(Set<Long> ids, Function<Set<Long>, List<Long>> lookup) {
+            resolve(ids, knownCryptos, missingCryptos, lookup);
+        }
+        
+        void reject(long row, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("row", row);
+                error.put("message", message);
+                errors.add(error);
+            }
+        }
+        
+        private static void resolve(Set<Long> ids, Set<Long> known, Set<Long> missing,
+                                    Function<Set<Long>, List<Long>> lookup) {
+            Set<Long> unknown = new HashSet<>();
+            for (Long id : ids) {
+                if (id != null && !known.contains(id) && !missing.contains(id)) {
+                    unknown.add(id);
+                }
+            }
+            if (unknown.isEmpty()) {
+                return;
+            }
+            List<Long> existing = lookup.apply(unknown);
+            known.addAll(existing);
+            unknown.removeAll(existing);
+            missing.addAll(unknown);
+        }
+    }
+    
+    private static final class InvalidRowException extends RuntimeException {
+        
+        InvalidRowException(String message) {
+            super(message);
+        }
+    }
+    
+    private interface RowReader {
+        
+        /**
+         * Próxima linha, ou null no fim do arquivo.
+         * @throws InvalidRowException se a linha estiver malformada
+         */
+        TransactionImportRow next() throws IOException;
+        
+        long rowNumber();
+    }
+    
+    private final class NdjsonRowReader implements RowReader {
+        
+        private final BufferedReader reader;
+        private long line;
+        
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+        
+        @Override
+        public TransactionImportRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+            
+            try {
+                return objectMapper.readValue(text, TransactionImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new InvalidRowException("JSON inválido: " + e.getOriginalMessage());
+            }
+        }
+        
+        @Override
+        public long rowNumber() {
+            return line;
+        }
+    }
+    
+    /**
+     * Leitor CSV (RFC 4180) com cabeçalho; aceita campos entre aspas com vírgulas,
+     * aspas duplicadas e quebras de linha.
+     */
+    private static final class CsvRowReader implements RowReader {
+        
+        private final BufferedReader reader;
+        private Map<String, Integer> columns;
+        private long row;
+        
+        CsvRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+        
+        @Override
+        public TransactionImportRow next() throws IOException {
+            if (columns == null) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim(), i);
+                }
+            }
+            
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                row++;
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+            
+            try {
+                return new TransactionImportRow(
+                    parseLong(field(fields, "portfolioId")),
+                    parseLong(field(fields, "cryptoId")),
+                    field(fields, "type"),
+                    parseDecimal(field(fields, "quantity")),
+                    parseDecimal(field(fields, "pricePerUnit")),
+                    parseDecimal(field(fields, "totalValue")),
+                    parseDate(field(fields, "transactionDate")),
+                    field(fields, "notes"));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new InvalidRowException("Valor inválido: " + e.getMessage());
+            }
+        }
+        
+        @Override
+        public long rowNumber() {
+            return row;
+        }
+        
+        private String field(List<String> fields, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+                return null;
+            }
+            return fields.get(index);
+        }
+        
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean read = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                read = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+        
+        private static Long parseLong(String value) {
+            return value != null ? Long.valueOf(value.trim()) : null;
+        }
+        
+        private static BigDecimal parseDecimal(String value) {
+            return value != null ? new BigDecimal(value.trim()) : null;
+        }
+        
+        private static LocalDateTime parseDate(String value) {
+            return value != null ? LocalDateTime.parse(value.trim()) : null;
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package com.coingecko.service;
 
+import com.coingecko.config.PaginationProperties;
+import com.coingecko.dto.CursorPage;
+import com.coingecko.dto.PageCursor;
+import com.coingecko.dto.TransactionRow;
+import com.coingecko.event.TransactionsChangedEvent;
 import com.coingecko.model.Crypto;
 import com.coingecko.model.Portfolio;
 import com.coingecko.model.Transaction;
 import com.coingecko.repository.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +34,12 @@ public class TransactionService {
     @Autowired
     private CryptoService cryptoService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private PaginationProperties paginationProperties;
+    
     public List<Transaction> findAll() {
         return transactionRepository.findAll();
     }
@@ -70,6 +84,61 @@ public class TransactionService {
         return transactionRepository.findByPortfolioIdAndTransactionDateBetween(portfolioId, startDate, endDate);
     }
     
+    // Listagens paginadas: mais recentes primeiro, por (transactionDate, id)
+    
+    public CursorPage<Transaction> findPage(String cursor, Integer size) {
+        return seek(cursor, size, transactionRepository::seekPage);
+    }
+    
+    public CursorPage<Transaction> findPageByPortfolioId(Long portfolioId, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByPortfolioId(portfolioId, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByCryptoId(Long cryptoId, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByCryptoId(cryptoId, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByType(Transaction.TransactionType type, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByType(type, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByPortfolioIdAndType(Long portfolioId, Transaction.TransactionType type, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByPortfolioIdAndType(portfolioId, type, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByCryptoIdAndType(Long cryptoId, Transaction.TransactionType type, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByCryptoIdAndType(cryptoId, type, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByDateRange(LocalDateTime startDate, LocalDateTime endDate, String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByTransactionDateBetween(startDate, endDate, date, id, pageable));
+    }
+    
+    public CursorPage<Transaction> findPageByPortfolioIdAndDateRange(Long portfolioId, LocalDateTime startDate, LocalDateTime endDate,
+                                                                    String cursor, Integer size) {
+        return seek(cursor, size, (date, id, pageable) ->
+            transactionRepository.seekPageByPortfolioIdAndTransactionDateBetween(portfolioId, startDate, endDate, date, id, pageable));
+    }
+    
+    // Busca uma linha além do tamanho da página para saber se há próxima página
+    private CursorPage<Transaction> seek(String cursor, Integer size, SeekQuery query) {
+        int pageSize = paginationProperties.resolve(size);
+        PageCursor position = PageCursor.decodeDescendingDate(cursor);
+        List<Transaction> fetched = query.fetch(position.date(), position.id(), PageRequest.ofSize(pageSize + 1));
+        return CursorPage.of(fetched, pageSize, t -> PageCursor.ofDateAndId(t.getTransactionDate(), t.getId()));
+    }
+    
+    @FunctionalInterface
+    private interface SeekQuery {
+        List<Transaction> fetch(LocalDateTime date, Long id, Pageable pageable);
+    }
+    
     public Transaction save(Transaction transaction) {
         // Verificar se o portfólio existe
         if (!portfolioService.existsById(transaction.getPortfolio().getId())) {
@@ -98,8 +167,10 @@ public class TransactionService {
         
         Transaction savedTransaction = transactionRepository.save(transaction);
         
-        // Atualizar valor total do portfólio
+        // Atualizar posição e valor total do portfólio
+        portfolioService.applyPositionDelta(portfolio, crypto, signedQuantity(savedTransaction));
         portfolioService.updateTotalValue(portfolio.getId());
+        eventPublisher.publishEvent(TransactionsChangedEvent.appended(portfolio.getId(), TransactionRow.of(savedTransaction)));
         
         return savedTransaction;
     }
@@ -108,6 +179,11 @@ public class TransactionService {
         Transaction transaction = transactionRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Transação não encontrada com id: " + id));
         
+        // Guardar o efeito anterior para desfazê-lo na posição
+        Portfolio previousPortfolio = transaction.getPortfolio();
+        Crypto previousCrypto = transaction.getCrypto();
+        BigDecimal previousQuantity = signedQuantity(transaction);
+        
         // Verificar se o portfólio existe (se mudou)
         if (!transaction.getPortfolio().getId().equals(transactionDetails.getPortfolio().getId()) &&
             !portfolioService.existsById(transactionDetails.getPortfolio().getId())) {
@@ -137,15 +213,31 @@ public class TransactionService {
         transaction.setQuantity(transactionDetails.getQuantity());
         transaction.setPricePerUnit(transactionDetails.getPricePerUnit());
         transaction.setNotes(transactionDetails.getNotes());
-        transaction.setTransactionDate(transactionDetails.getTransactionDate());
+        if (transactionDetails.getTransactionDate() != null) {
+            transaction.setTransactionDate(transactionDetails.getTransactionDate());
+        }
         
         // Recalcular valor total
         transaction.setTotalValue(transaction.getQuantity().multiply(transaction.getPricePerUnit()));
         
         Transaction updatedTransaction = transactionRepository.save(transaction);
         
-        // Atualizar valor total do portfólio
+        // Atualizar posições e valor total do(s) portfólio(s). Na mesma posição aplica só a
+        // diferença: desfazer e refazer em dois passos recusaria, por exemplo, aumentar uma
+        // compra já vendida por inteiro
+        if (previousPortfolio.getId().equals(transaction.getPortfolio().getId())
+                && previousCrypto.getId().equals(transaction.getCrypto().getId())) {
+            portfolioService.applyPositionDelta(previousPortfolio, previousCrypto, signedQuantity(transaction).subtract(previousQuantity));
+        } else {
+            portfolioService.applyPositionDelta(previousPortfolio, previousCrypto, previousQuantity.negate());
+            portfolioService.applyPositionDelta(transaction.getPortfolio(), transaction.getCrypto(), signedQuantity(transaction));
+        }
         portfolioService.updateTotalValue(transaction.getPortfolio().getId());
+        eventPublisher.publishEvent(TransactionsChangedEvent.rewritten(transaction.getPortfolio().getId()));
+        if (!previousPortfolio.getId().equals(transaction.getPortfolio().getId())) {
+            portfolioService.updateTotalValue(previousPortfolio.getId());
+            eventPublisher.publishEvent(TransactionsChangedEvent.rewritten(previousPortfolio.getId()));
+        }
         
         return updatedTransaction;
     }
@@ -156,10 +248,21 @@ public class TransactionService {
         
         Long portfolioId = transaction.getPortfolio().getId();
         
+        // Desfazer o efeito da transação na posição
+        portfolioService.applyPositionDelta(transaction.getPortfolio(), transaction.getCrypto(), signedQuantity(transaction).negate());
+        
         transactionRepository.deleteById(id);
         
         // Atualizar valor total do portfólio
         portfolioService.updateTotalValue(portfolioId);
+        eventPublisher.publishEvent(TransactionsChangedEvent.rewritten(portfolioId));
+    }
+    
+    // Quantidade com sinal: positiva na compra, negativa na venda
+    private static BigDecimal signedQuantity(Transaction transaction) {
+        return transaction.getType() == Transaction.TransactionType.SELL
+            ? transaction.getQuantity().negate()
+            : transaction.getQuantity();
     }
     
     public BigDecimal getTotalBoughtQuantity(Long cryptoId) {
@@ -0,0 +1,267 @@
+package com.coingecko.service;
+
+import com.coingecko.exception.UpstreamRateLimitedException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket compartilhado por todas as chamadas do WebClient da CoinGecko.
+ * Requisições aguardam em uma fila por prioridade (atualizações agendadas, depois
+ * consultas de usuários, depois diagnósticos) e respostas 429 suspendem a emissão
+ * de tokens pelo tempo indicado em Retry-After.
+ */
+@Component
+public class UpstreamRateLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamRateLimiter.class);
+    private static final String PRIORITY_KEY = UpstreamRateLimiter.class.getName() + ".priority";
+    
+    public enum Priority {
+        SCHEDULED,
+        USER,
+        DIAGNOSTIC
+    }
+    
+    @Value("${coingecko.rate-limit.capacity:10}")
+    private int capacity;
+    
+    @Value("${coingecko.rate-limit.refill-per-minute:30}")
+    private int refillPerMinute;
+    
+    @Value("${coingecko.rate-limit.max-queue:200}")
+    private int maxQueue;
+    
+    @Value("${coingecko.rate-limit.max-wait:30s}")
+    private Duration maxWait;
+    
+    @Value("${coingecko.rate-limit.max-retries:1}")
+    private int maxRetries;
+    
+    @Value("${coingecko.rate-limit.default-retry-after:20s}")
+    private Duration defaultRetryAfter;
+    
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    
+    // Estado do bucket, protegido por this
+    private double tokens;
+    private long lastRefillNanos;
+    private long blockedUntilMillis;
+    private boolean wakeupScheduled;
+    
+    @PostConstruct
+    public void init() {
+        synchronized (this) {
+            tokens = capacity;
+            lastRefillNanos = System.nanoTime();
+        }
+    }
+    
+    /**
+     * Define a prioridade das chamadas upstream feitas pela cadeia reativa.
+     * Uso: {@code mono.contextWrite(UpstreamRateLimiter.withPriority(Priority.SCHEDULED))}
+     */
+    public static Context withPriority(Priority priority) {
+        return Context.of(PRIORITY_KEY, priority);
+    }
+    
+    /**
+     * Filtro do WebClient: aguarda um token antes de cada requisição e trata 429.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> Mono.deferContextual(ctx -> {
+                    Priority priority = ctx.getOrDefault(PRIORITY_KEY, Priority.USER);
+                    return acquire(priority)
+                            .then(Mono.defer(() -> next.exchange(request)))
+                            .flatMap(response -> {
+                                if (response.statusCode().value() != 429) {
+                                    return Mono.just(response);
+                                }
+                                Duration retryAfter = parseRetryAfter(response.headers().asHttpHeaders().getFirst("Retry-After"));
+                                penalize(retryAfter);
+                                // Só vale tentar de novo se a pausa couber na espera máxima por token
+                                boolean retryable = retryAfter.compareTo(maxWait) < 0;
+                                return response.releaseBody().then(Mono.error(new UpstreamRateLimitedException(
+                                        "Rate limit excedido na API CoinGecko (Retry-After " + retryAfter.toSeconds() + "s)",
+                                        retryAfter, retryable)));
+                            });
+                })
+                .retryWhen(Retry.max(maxRetries)
+                        .filter(e -> e instanceof UpstreamRateLimitedException limited && limited.isRetryable())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+    
+    /**
+     * Aguarda um token na fila da prioridade informada, por no máximo max-wait.
+     */
+    public Mono<Void> acquire(Priority priority) {
+        Mono<Void> waiting = Mono.create(sink -> {
+            Waiter waiter = new Waiter(priority, sequence.incrementAndGet(), sink);
+            synchronized (this) {
+                if (queue.size() >= maxQueue) {
+                    rejected.incrementAndGet();
+                    sink.error(new UpstreamRateLimitedException("Fila do limitador de requisições cheia", null, false));
+                    return;
+                }
+                queue.add(waiter);
+            }
+            sink.onCancel(() -> {
+                synchronized (this) {
+                    queue.remove(waiter);
+                }
+            });
+            drain();
+        });
+        
+        return waiting.timeout(maxWait)
+                .onErrorMap(TimeoutException.class, e -> {
+                    rejected.incrementAndGet();
+                    return new UpstreamRateLimitedException(
+                            "Tempo de espera por cota da API CoinGecko excedido (" + maxWait.toSeconds() + "s)", null, false);
+                });
+    }
+    
+    /**
+     * Suspende a emissão de tokens até que o período de Retry-After termine.
+     */
+    public void penalize(Duration retryAfter) {
+        throttled.incrementAndGet();
+        synchronized (this) {
+            blockedUntilMillis = Math.max(blockedUntilMillis, System.currentTimeMillis() + retryAfter.toMillis());
+            tokens = 0;
+        }
+        logger.warn("Rate limit da API CoinGecko atingido. Suspendendo chamadas por {}s", retryAfter.toSeconds());
+        drain();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        Map<Priority, Integer> queued = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            queued.put(priority, 0);
+        }
+        
+        synchronized (this) {
+            refill();
+            status.put("availableTokens", Math.floor(tokens));
+            status.put("blockedForMillis", Math.max(0, blockedUntilMillis - System.currentTimeMillis()));
+            for (Waiter waiter : queue) {
+                queued.merge(waiter.priority, 1, Integer::sum);
+            }
+        }
+        
+        status.put("capacity", capacity);
+        status.put("refillPerMinute", refillPerMinute);
+        status.put("queued", queued);
+        status.put("granted", granted.get());
+        status.put("throttled", throttled.get());
+        status.put("rejected", rejected.get());
+        return status;
+    }
+    
+    private void drain() {
+        List<Waiter> ready = new ArrayList<>();
+        long wakeupDelay = -1;
+        
+        synchronized (this) {
+            refill();
+            long now = System.currentTimeMillis();
+            
+            if (now < blockedUntilMillis) {
+                wakeupDelay = blockedUntilMillis - now;
+            } else {
+                while (!queue.isEmpty() && tokens >= 1) {
+                    tokens -= 1;
+                    ready.add(queue.poll());
+                }
+                if (!queue.isEmpty()) {
+                    wakeupDelay = (long) Math.ceil((1 - tokens) * 60000.0 / refillPerMinute);
+                }
+            }
+            
+            if (wakeupDelay >= 0 && !wakeupScheduled) {
+                wakeupScheduled = true;
+                Schedulers.parallel().schedule(this::wakeup, Math.max(1, wakeupDelay), TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        for (Waiter waiter : ready) {
+            granted.incrementAndGet();
+            waiter.sink.success();
+        }
+    }
+    
+    private void wakeup() {
+        synchronized (this) {
+            wakeupScheduled = false;
+        }
+        drain();
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedMinutes = (now - lastRefillNanos) / 60_000_000_000.0;
+        tokens = Math.min(capacity, tokens + elapsedMinutes * refillPerMinute);
+        lastRefillNanos = now;
+    }
+    
+    private Duration parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return defaultRetryAfter;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (Exception ignored) {
+                return defaultRetryAfter;
+            }
+        }
+    }
+    
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Priority priority;
+        private final long sequence;
+        private final MonoSink<Void> sink;
+        
+        Waiter(Priority priority, long sequence, MonoSink<Void> sink) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.sink = sink;
+        }
+        
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.coingecko.service;
+
+import com.coingecko.config.WebSocketProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controle de fluxo do canal de saída do WebSocket.
+ * Conflação: nos destinos de {@code coingecko.websocket.conflate-destinations}, cada
+ * publicação recebe uma versão ao passar pelo canal do broker; no canal de saída, uma
+ * mensagem cuja versão já foi superada por outra publicação no mesmo destino é descartada,
+ * pois a sessão ainda vai receber a mais nova. Assim um cliente lento recebe só o último valor.
+ * A ordem de publicação por sessão não é preservada: com vários envios simultâneos para a
+ * mesma sessão, o decorador de sessão do Spring acumula os excedentes em buffer e desconecta
+ * ({@link CloseStatus#SESSION_NOT_RELIABLE}) a sessão que estoura o buffer ou o tempo de envio;
+ * aqui essas desconexões são contadas e registradas. Enquanto uma escrita trava, as demais
+ * mensagens da sessão vão para esse buffer limitado, sem prender outras threads do pool.
+ */
+@Component
+public class WebSocketFlowControl implements ExecutorChannelInterceptor {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketFlowControl.class);
+    private static final String VERSION_HEADER = "conflationVersion";
+    
+    @Autowired
+    private WebSocketProperties properties;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    
+    // destino -> versão da publicação mais recente
+    private final Map<String, Long> latestVersions = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    
+    private volatile ThreadPoolTaskExecutor outboundExecutor;
+    
+    /**
+     * Interceptor do canal do broker: marca cada publicação em destino conflacionável com
+     * uma versão crescente. O broker copia o cabeçalho para as mensagens de cada sessão.
+     */
+    public ChannelInterceptor publishInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                String destination = conflatableDestination(message);
+                if (destination == null) {
+                    return message;
+                }
+                long version = versions.incrementAndGet();
+                latestVersions.merge(destination, version, Math::max);
+                
+                MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+                accessor.setHeader(VERSION_HEADER, version);
+                return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+            }
+        };
+    }
+    
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        Long version = message.getHeaders().get(VERSION_HEADER, Long.class);
+        if (version == null) {
+            return message;
+        }
+        Long latest = latestVersions.get(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        if (latest != null && version < latest) {
+            // Já existe uma publicação mais nova no mesmo destino a caminho desta sessão
+            conflated.incrementAndGet();
+            return null;
+        }
+        return message;
+    }
+    
+    /**
+     * Decorador das sessões WebSocket que conta as desconexões por consumidor lento.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) {
+                    slowConsumerDisconnects.incrementAndGet();
+                    logger.warn("Sessão {} desconectada por consumo lento (limite de buffer ou tempo de envio)", session.getId());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+    
+    public void setOutboundExecutor(ThreadPoolTaskExecutor outboundExecutor) {
+        this.outboundExecutor = outboundExecutor;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("conflatedMessages", conflated.get());
+        status.put("conflatedDestinations", latestVersions.size());
+        status.put("slowConsumerDisconnects", slowConsumerDisconnects.get());
+        status.put("sendBufferSizeLimit", properties.getSendBufferSizeLimit());
+        status.put("sendTimeLimit", properties.getSendTimeLimit().toString());
+        ThreadPoolTaskExecutor executor = outboundExecutor;
+        if (executor != null) {
+            status.put("outboundActiveThreads", executor.getActiveCount());
+            status.put("outboundQueued", executor.getQueueSize());
+        }
+        return status;
+    }
+    
+    private String conflatableDestination(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return null;
+        }
+        for (String pattern : properties.getConflateDestinations()) {
+            if (pathMatcher.match(pattern, destination)) {
+                return destination;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.coingecko.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Codificação das mensagens STOMP enviadas pelo WebSocketService.
+ * O frame ({@code type}, {@code timestamp} e o corpo) é escrito direto em um
+ * JsonGenerator, sem montar um Map intermediário, sobre um buffer reaproveitado por
+ * thread, com o ObjectMapper configurado pelo Spring (datas ISO, fuso, módulos).
+ * O resultado vira a carga {@code byte[]} da mensagem, então o SimpMessagingTemplate não
+ * converte de novo e o broker repassa os mesmos bytes para todos os inscritos.
+ */
+@Component
+public class WebSocketMessageEncoder {
+    
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    
+    // Depois do reset o buffer mantém o último bloco alocado (no máximo 128 KB no Jackson)
+    private static final ThreadLocal<ByteArrayBuilder> BUFFERS = ThreadLocal.withInitial(() -> new ByteArrayBuilder(8 * 1024));
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * Serializa um frame {@code {"type": ..., "timestamp": ..., <corpo>}} uma única vez.
+     */
+    public byte[] encode(String type, FrameBody body) throws IOException {
+        return encode(type, timestamp(), body);
+    }
+    
+    /**
+     * Como {@link #encode(String, FrameBody)}, com o {@code timestamp} já formatado: os frames
+     * de um mesmo ciclo compartilham o valor em vez de formatar a data a cada frame.
+     */
+    public byte[] encode(String type, String timestamp, FrameBody body) throws IOException {
+        ByteArrayBuilder buffer = BUFFERS.get();
+        buffer.reset();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", type);
+            generator.writeStringField("timestamp", timestamp);
+            body.writeTo(generator);
+            generator.writeEndObject();
+        }
+        // Cópia exata: a carga segue para outras threads enquanto o buffer é reaproveitado
+        return buffer.toByteArray();
+    }
+    
+    public String timestamp() {
+        return LocalDateTime.now().format(ISO_FORMATTER);
+    }
+    
+    /**
+     * Mensagem pronta para {@code SimpMessagingTemplate.send}, sem nova conversão da carga.
+     */
+    public Message<byte[]> toMessage(byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+    
+    /**
+     * Escreve os campos do frame depois de {@code type} e {@code timestamp}.
+     * Valores complexos podem ser escritos com {@code generator.writeObjectField}, que usa o
+     * ObjectMapper do Spring.
+     */
+    @FunctionalInterface
+    public interface FrameBody {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+}
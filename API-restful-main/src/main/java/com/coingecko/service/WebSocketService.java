@@ -1,29 +1,65 @@
 package com.coingecko.service;
 
+import com.coingecko.dto.CryptoTick;
 import com.coingecko.model.Crypto;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Publicação via STOMP.
+ * Além do tópico geral {@code /topic/crypto-updates}, cada moeda tem o seu
+ * ({@code /topic/crypto/{SYMBOL}}) e cada portfólio também ({@code /topic/portfolio/{id}}).
+ * Mensagens para destinos sem inscritos não são serializadas nem enviadas.
+ * As atualizações de mercado de cada ciclo vão em um único frame {@code market_tick} e,
+ * para clientes que mantêm estado, como delta numerado em {@code /topic/market/deltas}.
+ * Cada frame é serializado uma vez pelo {@link WebSocketMessageEncoder}.
+ */
 @Service
 public class WebSocketService {
     
     private static final Logger logger = LoggerFactory.getLogger(WebSocketService.class);
     private static final String WEBSOCKET_TOPIC = "/topic/crypto-updates";
-    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String CRYPTO_TOPIC_PREFIX = "/topic/crypto/";
+    private static final String PORTFOLIO_TOPIC_PREFIX = "/topic/portfolio/";
+    private static final String DELTA_TOPIC = "/topic/market/deltas";
     
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private SubscriptionTracker subscriptionTracker;
+    
+    @Autowired
+    private MarketDeltaState marketDeltaState;
+    
+    @Autowired
+    private WebSocketFlowControl flowControl;
+    
+    @Autowired
+    private WebSocketMessageEncoder encoder;
+    
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    
+    public static String cryptoTopic(String symbol) {
+        return CRYPTO_TOPIC_PREFIX + symbol.toUpperCase(Locale.ROOT);
+    }
+    
+    public static String portfolioTopic(Long portfolioId) {
+        return PORTFOLIO_TOPIC_PREFIX + portfolioId;
+    }
     
     public void sendCryptoUpdate(Crypto crypto) {
         try {
@@ -32,14 +68,22 @@ public class WebSocketService {
                 return;
             }
             
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "crypto_update");
-            // Usar String ao invés de LocalDateTime para evitar problemas de serialização
-            update.put("timestamp", LocalDateTime.now().format(ISO_FORMATTER));
-            update.put("data", crypto);
+            // Serializa uma vez para o tópico geral e o da moeda, só se houver inscritos
+            boolean toAll = subscriptionTracker.hasSubscribers(WEBSOCKET_TOPIC);
+            String symbolTopic = crypto.getSymbol() != null ? cryptoTopic(crypto.getSymbol()) : null;
+            boolean toSymbol = symbolTopic != null && subscriptionTracker.hasSubscribers(symbolTopic);
+            if (!toAll && !toSymbol) {
+                skipped.incrementAndGet();
+                return;
+            }
             
-            String message = objectMapper.writeValueAsString(update);
-            messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, message);
+            byte[] payload = encode("crypto_update", generator -> generator.writeObjectField("data", crypto));
+            if (toAll) {
+                send(WEBSOCKET_TOPIC, payload);
+            }
+            if (toSymbol) {
+                send(symbolTopic, payload);
+            }
             
             logger.debug("Atualização enviada via WebSocket para: {} - Preço: ${}", 
                         crypto.getName(), crypto.getCurrentPrice());
@@ -50,15 +94,88 @@ public class WebSocketService {
         }
     }
     
-    public void sendMarketUpdate(Map<String, Object> marketData) {
+    /**
+     * Envia todas as moedas alteradas em um ciclo como um único frame {@code market_tick}:
+     * serializado uma vez e entregue pelo broker a todos os inscritos no tópico geral.
+     * Cada tópico de moeda com inscritos recebe um frame no mesmo formato, só com a sua linha.
+     */
+    public void sendMarketTick(List<Crypto> cryptos) {
+        if (cryptos.isEmpty()) {
+            return;
+        }
+        try {
+            // Um timestamp por ciclo, como no frame geral, para todos os frames de moeda
+            String timestamp = encoder.timestamp();
+            if (subscriptionTracker.hasSubscribers(WEBSOCKET_TOPIC)) {
+                send(WEBSOCKET_TOPIC, encodeTick(timestamp, cryptos));
+            } else {
+                skipped.incrementAndGet();
+            }
+            
+            for (Crypto crypto : cryptos) {
+                if (crypto.getSymbol() == null) {
+                    continue;
+                }
+                String symbolTopic = cryptoTopic(crypto.getSymbol());
+                if (subscriptionTracker.hasSubscribers(symbolTopic)) {
+                    send(symbolTopic, encodeTick(timestamp, List.of(crypto)));
+                }
+            }
+            
+            logger.debug("Frame market_tick enviado via WebSocket com {} criptomoedas", cryptos.size());
+            
+        } catch (Exception e) {
+            logger.error("Erro ao enviar market_tick via WebSocket: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Aplica as moedas ao estado de mercado e envia o delta (apenas campos alterados) com a
+     * próxima sequência. O estado avança mesmo sem inscritos, para que o snapshot fique certo.
+     */
+    public void sendMarketDelta(List<Crypto> cryptos) {
+        try {
+            MarketDeltaState.Delta delta = marketDeltaState.apply(cryptos);
+            if (delta == null) {
+                return;
+            }
+            
+            sendIfSubscribed(DELTA_TOPIC, "market_delta", generator -> {
+                generator.writeNumberField("seq", delta.sequence());
+                generator.writeObjectField("changes", delta.changes());
+            });
+            
+            logger.debug("Delta {} enviado via WebSocket com {} criptomoedas", delta.sequence(), delta.changes().size());
+            
+        } catch (Exception e) {
+            logger.error("Erro ao enviar delta de mercado via WebSocket: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Novo valor total de um portfólio, enviado só para quem acompanha o portfólio.
+     */
+    public void sendPortfolioUpdate(Long portfolioId, BigDecimal totalValue) {
         try {
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "market_update");
-            update.put("timestamp", LocalDateTime.now().format(ISO_FORMATTER));
-            update.put("data", marketData);
+            sendIfSubscribed(portfolioTopic(portfolioId), "portfolio_update", generator -> {
+                generator.writeObjectFieldStart("data");
+                generator.writeNumberField("portfolioId", portfolioId);
+                generator.writeObjectField("totalValue", totalValue);
+                generator.writeEndObject();
+            });
             
-            String message = objectMapper.writeValueAsString(update);
-            messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, message);
+        } catch (Exception e) {
+            logger.error("Erro ao enviar atualização do portfólio {} via WebSocket: {}", portfolioId, e.getMessage());
+        }
+    }
+    
+    public boolean hasPortfolioSubscribers(Long portfolioId) {
+        return subscriptionTracker.hasSubscribers(portfolioTopic(portfolioId));
+    }
+    
+    public void sendMarketUpdate(Map<String, Object> marketData) {
+        try {
+            sendIfSubscribed(WEBSOCKET_TOPIC, "market_update", generator -> generator.writeObjectField("data", marketData));
             
             logger.debug("Atualização de mercado enviada via WebSocket");
             
@@ -69,14 +186,10 @@ public class WebSocketService {
     
     public void sendStatusUpdate(String status, String message) {
         try {
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "status_update");
-            update.put("timestamp", LocalDateTime.now().format(ISO_FORMATTER));
-            update.put("status", status);
-            update.put("message", message);
-            
-            String jsonMessage = objectMapper.writeValueAsString(update);
-            messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, jsonMessage);
+            sendIfSubscribed(WEBSOCKET_TOPIC, "status_update", generator -> {
+                generator.writeStringField("status", status);
+                generator.writeStringField("message", message);
+            });
             
             logger.debug("Atualização de status enviada: {}", status);
             
@@ -87,13 +200,7 @@ public class WebSocketService {
     
     public void sendErrorUpdate(String errorMessage) {
         try {
-            Map<String, Object> update = new HashMap<>();
-            update.put("type", "error");
-            update.put("timestamp", LocalDateTime.now().format(ISO_FORMATTER));
-            update.put("error", errorMessage);
-            
-            String jsonMessage = objectMapper.writeValueAsString(update);
-            messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, jsonMessage);
+            sendIfSubscribed(WEBSOCKET_TOPIC, "error", generator -> generator.writeStringField("error", errorMessage));
             
             logger.debug("Erro enviado via WebSocket: {}", errorMessage);
             
@@ -101,4 +208,75 @@ public class WebSocketService {
             logger.error("Erro ao enviar erro via WebSocket: {}", e.getMessage());
         }
     }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = subscriptionTracker.getStatus();
+        status.put("sentMessages", sent.get());
+        status.put("skippedMessages", skipped.get());
+        status.put("encodedBytes", encodedBytes.get());
+        status.put("marketSequence", marketDeltaState.sequence());
+        status.put("flowControl", flowControl.getStatus());
+        return status;
+    }
+    
+    // Linhas compactas escritas direto no gerador, sem lista intermediária
+    private byte[] encodeTick(String timestamp, List<Crypto> cryptos) throws IOException {
+        return encode("market_tick", timestamp, generator -> {
+            // Nomes escritos direto: writeObjectField passaria pelo serializador de List a cada frame
+            generator.writeArrayFieldStart("fields");
+            for (String field : CryptoTick.FIELDS) {
+                generator.writeString(field);
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("rows");
+            for (Crypto crypto : cryptos) {
+                writeTickRow(generator, crypto);
+            }
+            generator.writeEndArray();
+        });
+    }
+    
+    // Mesmo formato (e escala) de CryptoTick serializado como array
+    private static void writeTickRow(JsonGenerator generator, Crypto crypto) throws IOException {
+        CryptoTick tick = CryptoTick.of(crypto);
+        generator.writeStartArray();
+        generator.writeString(tick.symbol());
+        generator.writeString(tick.name());
+        writeNumber(generator, tick.currentPrice());
+        writeNumber(generator, tick.marketCap());
+        writeNumber(generator, tick.volume24h());
+        writeNumber(generator, tick.change24h());
+        generator.writeEndArray();
+    }
+    
+    private static void writeNumber(JsonGenerator generator, BigDecimal value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+    
+    private byte[] encode(String type, WebSocketMessageEncoder.FrameBody body) throws IOException {
+        return encode(type, encoder.timestamp(), body);
+    }
+    
+    private byte[] encode(String type, String timestamp, WebSocketMessageEncoder.FrameBody body) throws IOException {
+        byte[] payload = encoder.encode(type, timestamp, body);
+        encodedBytes.addAndGet(payload.length);
+        return payload;
+    }
+    
+    private void sendIfSubscribed(String destination, String type, WebSocketMessageEncoder.FrameBody body) throws IOException {
+        if (!subscriptionTracker.hasSubscribers(destination)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        send(destination, encode(type, body));
+    }
+    
+    private void send(String destination, byte[] payload) {
+        messagingTemplate.send(destination, encoder.toMessage(payload));
+        sent.incrementAndGet();
+    }
 }
@@ -0,0 +1,123 @@
+package com.coingecko.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de ponto fixo em {@code long} com 8 casas decimais (valor x 10^8), a mesma
+ * escala da coluna {@code current_price} (precision 20, scale 8).
+ * Os métodos estáticos operam sobre o valor bruto para uso em laços de agregação sem
+ * alocar objetos; a conversão para BigDecimal fica nas bordas (banco e JSON).
+ * Estouros lançam {@link ArithmeticException} em vez de perder precisão em silêncio.
+ */
+public final class FixedPoint implements Comparable<FixedPoint> {
+    
+    public static final int SCALE = 8;
+    public static final long ONE = 100_000_000L;
+    public static final FixedPoint ZERO = new FixedPoint(0);
+    
+    private final long raw;
+    
+    private FixedPoint(long raw) {
+        this.raw = raw;
+    }
+    
+    public static FixedPoint ofRaw(long raw) {
+        return new FixedPoint(raw);
+    }
+    
+    public static FixedPoint of(BigDecimal value) {
+        return new FixedPoint(toRaw(value));
+    }
+    
+    /**
+     * Converte para o valor bruto, arredondando além da 8ª casa (HALF_UP).
+     * @throws ArithmeticException se o valor não couber em um long
+     */
+    public static long toRaw(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    public static BigDecimal toBigDecimal(long raw) {
+        return BigDecimal.valueOf(raw, SCALE);
+    }
+    
+    public static long addRaw(long a, long b) {
+        return Math.addExact(a, b);
+    }
+    
+    /**
+     * Produto de dois valores brutos, arredondado HALF_UP para 8 casas.
+     * Os operandos são divididos em parte inteira e fracionária para que nenhum produto
+     * intermediário precise de mais de 64 bits além do próprio resultado.
+     * @throws ArithmeticException se o resultado não couber em um long
+     */
+    public static long multiplyRaw(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        if (a == Long.MIN_VALUE || b == Long.MIN_VALUE) {
+            throw new ArithmeticException("long overflow");
+        }
+        
+        boolean negative = (a < 0) != (b < 0);
+        long x = Math.abs(a);
+        long y = Math.abs(b);
+        
+        long xInt = x / ONE;
+        long xFrac = x % ONE;
+        long yInt = y / ONE;
+        long yFrac = y % ONE;
+        
+        // (xi + xf/S)(yi + yf/S) * S = xi*yi*S + xi*yf + xf*yi + xf*yf/S
+        long result = Math.multiplyExact(Math.multiplyExact(xInt, yInt), ONE);
+        result = Math.addExact(result, Math.multiplyExact(xInt, yFrac));
+        result = Math.addExact(result, Math.multiplyExact(xFrac, yInt));
+        
+        long fractional = xFrac * yFrac; // < 10^16, sem estouro
+        long rounded = fractional / ONE + (fractional % ONE >= ONE / 2 ? 1 : 0);
+        result = Math.addExact(result, rounded);
+        
+        return negative ? -result : result;
+    }
+    
+    public FixedPoint add(FixedPoint other) {
+        return new FixedPoint(addRaw(raw, other.raw));
+    }
+    
+    public FixedPoint multiply(FixedPoint other) {
+        return new FixedPoint(multiplyRaw(raw, other.raw));
+    }
+    
+    public long raw() {
+        return raw;
+    }
+    
+    public int signum() {
+        return Long.signum(raw);
+    }
+    
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(raw);
+    }
+    
+    @Override
+    public int compareTo(FixedPoint other) {
+        return Long.compare(raw, other.raw);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof FixedPoint other && raw == other.raw);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Long.hashCode(raw);
+    }
+    
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,75 @@
+-- Schema do perfil prod (H2 em arquivo). Executado a cada inicialização antes da
+-- validação do Hibernate (ddl-auto: validate), por isso tudo usa IF NOT EXISTS.
+-- Gerado a partir das entidades em com.coingecko.model (jakarta.persistence.schema-generation)
+-- e conferido por SchemaProdScriptTest: toda mudança nas entidades entra aqui no mesmo commit.
+
+-- INCREMENT BY igual ao allocationSize das entidades (otimizador pooled)
+CREATE SEQUENCE IF NOT EXISTS cryptos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS portfolios_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS transactions_seq START WITH 1 INCREMENT BY 50;
+-- Posições: incremento 1, compartilhado com o INSERT via JDBC do PortfolioService
+CREATE SEQUENCE IF NOT EXISTS positions_id_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS cryptos (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    symbol VARCHAR(255) NOT NULL,
+    current_price NUMERIC(20, 8) NOT NULL,
+    market_cap NUMERIC(20, 2),
+    volume24h NUMERIC(20, 2),
+    change24h NUMERIC(5, 2),
+    description VARCHAR(500),
+    image_url VARCHAR(500),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_cryptos_name UNIQUE (name),
+    CONSTRAINT uk_cryptos_symbol UNIQUE (symbol)
+);
+
+CREATE TABLE IF NOT EXISTS portfolios (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    total_value NUMERIC(20, 2),
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id BIGINT NOT NULL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    crypto_id BIGINT NOT NULL,
+    type VARCHAR(255) NOT NULL CHECK (type IN ('BUY', 'SELL')),
+    quantity NUMERIC(20, 8) NOT NULL,
+    price_per_unit NUMERIC(20, 8) NOT NULL,
+    total_value NUMERIC(20, 2) NOT NULL,
+    notes VARCHAR(500),
+    transaction_date TIMESTAMP(6),
+    created_at TIMESTAMP(6),
+    CONSTRAINT fk_transactions_portfolio FOREIGN KEY (portfolio_id) REFERENCES portfolios (id),
+    CONSTRAINT fk_transactions_crypto FOREIGN KEY (crypto_id) REFERENCES cryptos (id)
+);
+
+CREATE TABLE IF NOT EXISTS positions (
+    id BIGINT NOT NULL PRIMARY KEY,
+    portfolio_id BIGINT NOT NULL,
+    crypto_id BIGINT NOT NULL,
+    quantity NUMERIC(28, 8) NOT NULL,
+    updated_at TIMESTAMP(6),
+    CONSTRAINT uk_positions_portfolio_crypto UNIQUE (portfolio_id, crypto_id),
+    CONSTRAINT fk_positions_portfolio FOREIGN KEY (portfolio_id) REFERENCES portfolios (id),
+    CONSTRAINT fk_positions_crypto FOREIGN KEY (crypto_id) REFERENCES cryptos (id)
+);
+
+-- Bancos criados com a antiga positions_seq já têm posições: a nova sequence continua depois
+-- do maior id (com incremento 1, MAX + 1 é o próximo id livre; repetir a cada início é seguro)
+ALTER SEQUENCE positions_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM positions);
+
+-- Mesmos índices declarados em Transaction (@Table indexes)
+CREATE INDEX IF NOT EXISTS idx_transactions_date ON transactions (transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_portfolio_date ON transactions (portfolio_id, transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_portfolio_type_date ON transactions (portfolio_id, type, transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_type_date ON transactions (type, transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_crypto_date ON transactions (crypto_id, transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_portfolio_type_value ON transactions (portfolio_id, type, total_value);
+CREATE INDEX IF NOT EXISTS idx_transactions_crypto_type_quantity ON transactions (crypto_id, type, quantity);
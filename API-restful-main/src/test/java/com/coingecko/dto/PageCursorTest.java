@@ -0,0 +1,73 @@
+package com.coingecko.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+    
+    @Test
+    void idCursorRoundTrips() {
+        String encoded = PageCursor.ofId(12345L).encode();
+        
+        assertThat(PageCursor.decodeAscendingId(encoded)).isEqualTo(PageCursor.ofId(12345L));
+    }
+    
+    @Test
+    void dateCursorRoundTripsWithNanoseconds() {
+        PageCursor cursor = PageCursor.ofDateAndId(LocalDateTime.of(2024, 3, 14, 7, 10, 36, 635_000_001), 987L);
+        
+        assertThat(PageCursor.decodeDescendingDate(cursor.encode())).isEqualTo(cursor);
+    }
+    
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = PageCursor.ofDateAndId(LocalDateTime.of(2024, 12, 31, 23, 59, 59), Long.MAX_VALUE).encode();
+        
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+    
+    @Test
+    void missingCursorStartsAtTheBeginningOfEachListing() {
+        assertThat(PageCursor.decodeAscendingId(null)).isEqualTo(PageCursor.ofId(0L));
+        assertThat(PageCursor.decodeAscendingId(" ")).isEqualTo(PageCursor.ofId(0L));
+        
+        PageCursor descending = PageCursor.decodeDescendingDate(null);
+        assertThat(descending.id()).isEqualTo(Long.MAX_VALUE);
+        assertThat(descending.date()).isAfter(LocalDateTime.of(9999, 1, 1, 0, 0));
+    }
+    
+    @Test
+    void rejectsCursorThatIsNotBase64() {
+        assertThatThrownBy(() -> PageCursor.decodeAscendingId("não é base64!"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageStartingWith("Cursor inválido");
+    }
+    
+    @Test
+    void rejectsTamperedPayload() {
+        assertThatThrownBy(() -> PageCursor.decodeAscendingId(encode("abc")))
+                .hasMessageStartingWith("Cursor inválido");
+        assertThatThrownBy(() -> PageCursor.decodeDescendingDate(encode("2024-13-45T00:00|10")))
+                .hasMessageStartingWith("Cursor inválido");
+        assertThatThrownBy(() -> PageCursor.decodeDescendingDate(encode("2024-01-01T00:00|dez")))
+                .hasMessageStartingWith("Cursor inválido");
+    }
+    
+    @Test
+    void rejectsIdCursorOnDateListing() {
+        String idOnly = PageCursor.ofId(5L).encode();
+        
+        assertThatThrownBy(() -> PageCursor.decodeDescendingDate(idOnly))
+                .hasMessage("Cursor inválido para esta listagem");
+    }
+    
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,59 @@
+package com.coingecko.repository;
+
+import com.coingecko.model.Transaction;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * O perfil prod cria o schema só com schema-prod.sql e o Hibernate apenas valida.
+ * Aqui o banco nasce do script (sem DDL do Hibernate): se uma entidade mudar sem o script
+ * acompanhar, o contexto não sobe.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=validate",
+    "spring.sql.init.mode=always",
+    "spring.sql.init.schema-locations=classpath:schema-prod.sql"
+})
+class SchemaProdScriptTest {
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void entitiesValidateAgainstTheScriptAndEveryDeclaredIndexExists() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE LOWER(TABLE_NAME) = 'transactions'",
+                String.class);
+        
+        List<String> declared = Arrays.stream(Transaction.class.getAnnotation(Table.class).indexes())
+                .map(Index::name)
+                .toList();
+        assertThat(indexes).containsAll(declared);
+    }
+    
+    @Test
+    void scriptCanRunAgainOnAnExistingDatabase() throws Exception {
+        // Reinício do perfil prod: o script roda de novo sobre as tabelas já criadas
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-prod.sql"));
+        }
+        
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transactions", Long.class)).isZero();
+    }
+}
@@ -0,0 +1,183 @@
+package com.coingecko.repository;
+
+import com.coingecko.model.Transaction.TransactionType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regressão de plano: cada consulta filtrada do TransactionRepository precisa usar um dos
+ * índices compostos de {@code transactions} em vez de varrer a tabela.
+ * O SQL verificado é o gerado pelo Hibernate (capturado ao executar o método do
+ * repositório), com o EXPLAIN do H2 sobre 1M de transações.
+ * O volume pode ser reduzido com {@code -Dquery-plan.rows=...} para rodar mais rápido.
+ * Marcado como {@code slow}: fica fora do {@code mvn test} padrão e roda com
+ * {@code mvn test -Pquery-plan}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.coingecko.repository.CapturingStatementInspector")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+@Tag("slow")
+class TransactionQueryPlanTest {
+    
+    private static final int PORTFOLIOS = 1_000;
+    private static final int CRYPTOS = 500;
+    private static final long SEED_SLICE = 50_000;
+    private static final LocalDateTime FROM = LocalDateTime.of(2021, 1, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2021, 1, 8, 0, 0);
+    private static final PageRequest PAGE = PageRequest.of(0, 50);
+    // Linha do FROM/JOIN de transactions seguida do comentário com o índice e a condição de busca
+    private static final Pattern TRANSACTIONS_ACCESS = Pattern.compile(
+            "\"PUBLIC\"\\.\"TRANSACTIONS\" \"\\w+\"\\s+/\\* PUBLIC\\.([\\w.]+)(?:: ([^*]*))?\\*/");
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeAll
+    void seed() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        long rows = Long.getLong("query-plan.rows", 1_000_000L);
+        
+        jdbcTemplate.update("INSERT INTO portfolios (id, name, description, total_value, created_at) " +
+                "SELECT X, 'Portfólio ' || X, 'Carteira de teste', 0, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", PORTFOLIOS);
+        jdbcTemplate.update("INSERT INTO cryptos (id, name, symbol, current_price, created_at) " +
+                "SELECT X, 'Coin ' || X, 'C' || X, 1.5 * X, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)", CRYPTOS);
+        // Um minuto entre transações: 1M linhas cobrem quase dois anos a partir de 2020.
+        // Inserido em fatias para que o H2 não acumule um único log de desfazer em memória.
+        for (long first = 1; first <= rows; first += SEED_SLICE) {
+            jdbcTemplate.update("INSERT INTO transactions (id, portfolio_id, crypto_id, type, quantity, price_per_unit, " +
+                    "total_value, transaction_date, created_at) " +
+                    "SELECT X, MOD(X, ?) + 1, MOD(X * 7, ?) + 1, CASEWHEN(MOD(X, 3) = 0, 'SELL', 'BUY'), 0.5, 100, 50, " +
+                    "DATEADD(MINUTE, X, TIMESTAMP '2020-01-01 00:00:00'), CURRENT_TIMESTAMP FROM SYSTEM_RANGE(?, ?)",
+                    PORTFOLIOS, CRYPTOS, first, Math.min(rows, first + SEED_SLICE - 1));
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+    
+    @BeforeEach
+    void clearCapturedStatements() {
+        CapturingStatementInspector.clear();
+    }
+    
+    @Test
+    void portfolioQueriesUsePortfolioIndexes() {
+        transactionRepository.findByPortfolioId(7L);
+        assertUsesIndex();
+        
+        transactionRepository.findByPortfolioIdAndType(7L, TransactionType.SELL);
+        assertUsesIndex();
+        
+        transactionRepository.findByPortfolioIdOrderByTransactionDateDesc(7L);
+        assertUsesIndex();
+        
+        transactionRepository.findByPortfolioIdAndTransactionDateBetween(7L, FROM, TO);
+        assertUsesIndex();
+        
+        transactionRepository.findRowsForCostBasis(7L);
+        assertUsesIndex();
+        
+        transactionRepository.getNetQuantitiesByCrypto(7L);
+        assertUsesIndex();
+    }
+    
+    @Test
+    void portfolioSumsUseIndexes() {
+        transactionRepository.getTotalInvested(7L);
+        assertUsesIndex();
+        
+        transactionRepository.getTotalSold(7L);
+        assertUsesIndex();
+    }
+    
+    @Test
+    void cryptoQueriesUseCryptoIndexes() {
+        transactionRepository.findByCryptoId(11L);
+        assertUsesIndex();
+        
+        transactionRepository.findByCryptoIdAndType(11L, TransactionType.BUY);
+        assertUsesIndex();
+        
+        transactionRepository.findByCryptoIdOrderByTransactionDateDesc(11L);
+        assertUsesIndex();
+        
+        transactionRepository.getTotalBoughtQuantity(11L);
+        assertUsesIndex();
+        
+        transactionRepository.getTotalSoldQuantity(11L);
+        assertUsesIndex();
+    }
+    
+    @Test
+    void dateRangeUsesDateIndex() {
+        transactionRepository.findByTransactionDateBetween(FROM, TO);
+        assertUsesIndex();
+    }
+    
+    @Test
+    void keysetPagesUseIndexes() {
+        LocalDateTime date = LocalDateTime.of(2021, 6, 1, 0, 0);
+        long id = Long.MAX_VALUE;
+        
+        transactionRepository.seekPage(date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByType(TransactionType.SELL, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByPortfolioId(7L, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByPortfolioIdAndType(7L, TransactionType.BUY, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByCryptoId(11L, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByCryptoIdAndType(11L, TransactionType.BUY, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByTransactionDateBetween(FROM, TO, date, id, PAGE);
+        assertUsesIndex();
+        
+        transactionRepository.seekPageByPortfolioIdAndTransactionDateBetween(7L, FROM, TO, date, id, PAGE);
+        assertUsesIndex();
+    }
+    
+    // Plano do último SELECT em transactions; o EXPLAIN do H2 aceita os parâmetros sem valor.
+    // transactions precisa ser lida por busca no índice com os parâmetros da consulta. Um
+    // índice percorrido pela chave de junção (ex.: CRYPTO_ID = C1_0.ID) lê a tabela toda.
+    private void assertUsesIndex() {
+        List<String> statements = CapturingStatementInspector.statements();
+        String sql = statements.get(statements.size() - 1);
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        CapturingStatementInspector.clear();
+        
+        Matcher access = TRANSACTIONS_ACCESS.matcher(plan);
+        assertThat(access.find()).as("Acesso a transactions no plano:%n%s", plan).isTrue();
+        assertThat(access.group(1)).as("Plano:%n%s", plan).isNotEqualTo("TRANSACTIONS.tableScan");
+        assertThat(access.group(2)).as("Plano:%n%s", plan)
+                .contains("?")
+                .doesNotContainPattern("= [A-Z]\\w*_0\\.");
+    }
+}
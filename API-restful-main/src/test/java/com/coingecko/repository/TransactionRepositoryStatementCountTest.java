@@ -0,0 +1,123 @@
+package com.coingecko.repository;
+
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Portfolio;
+import com.coingecko.model.Transaction;
+import com.coingecko.model.Transaction.TransactionType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * As listagens de transações são serializadas com portfólio e criptomoeda; cada consulta
+ * precisa carregar as duas associações no mesmo SELECT, qualquer que seja o número de linhas.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TransactionRepositoryStatementCountTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final PageRequest PAGE = PageRequest.of(0, 50);
+    
+    @Autowired
+    private TransactionRepository transactionRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    // Como o Jackson do controller: toca portfólio e criptomoeda de cada transação
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    
+    private Statistics statistics;
+    private Long portfolioId;
+    private Long cryptoId;
+    
+    @BeforeEach
+    void seed() {
+        List<Portfolio> portfolios = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            portfolios.add(entityManager.persist(new Portfolio("Portfólio " + i, "Carteira " + i)));
+        }
+        List<Crypto> cryptos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            cryptos.add(entityManager.persist(new Crypto("Coin " + i, "C" + i, new BigDecimal("10.5"))));
+        }
+        for (int i = 0; i < 30; i++) {
+            Transaction transaction = new Transaction(portfolios.get(i % 3), cryptos.get(i % 4),
+                    i % 5 == 0 ? TransactionType.SELL : TransactionType.BUY, BigDecimal.ONE, new BigDecimal("10.5"), null);
+            transaction.setTransactionDate(START.plusHours(i));
+            entityManager.persist(transaction);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        portfolioId = portfolios.get(0).getId();
+        cryptoId = cryptos.get(0).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @Test
+    void listingsLoadAssociationsInOneStatement() throws JsonProcessingException {
+        assertSingleStatement(() -> transactionRepository.findAll(), 30);
+        assertSingleStatement(() -> transactionRepository.findByPortfolioId(portfolioId), 10);
+        assertSingleStatement(() -> transactionRepository.findByCryptoId(cryptoId), 8);
+        assertSingleStatement(() -> transactionRepository.findByType(TransactionType.SELL), 6);
+        assertSingleStatement(() -> transactionRepository.findByPortfolioIdAndType(portfolioId, TransactionType.BUY), 8);
+        assertSingleStatement(() -> transactionRepository.findByCryptoIdAndType(cryptoId, TransactionType.SELL), 2);
+        assertSingleStatement(() -> transactionRepository.findByPortfolioIdOrderByTransactionDateDesc(portfolioId), 10);
+        assertSingleStatement(() -> transactionRepository.findByCryptoIdOrderByTransactionDateDesc(cryptoId), 8);
+        assertSingleStatement(() -> transactionRepository.findByTransactionDateBetween(START, START.plusHours(9)), 10);
+        assertSingleStatement(() -> transactionRepository.findByPortfolioIdAndTransactionDateBetween(
+                portfolioId, START, START.plusHours(9)), 4);
+    }
+    
+    @Test
+    void keysetPagesLoadAssociationsInOneStatement() throws JsonProcessingException {
+        LocalDateTime after = START.plusDays(2);
+        
+        assertSingleStatement(() -> transactionRepository.seekPage(after, Long.MAX_VALUE, PAGE), 30);
+        assertSingleStatement(() -> transactionRepository.seekPageByPortfolioId(portfolioId, after, Long.MAX_VALUE, PAGE), 10);
+        assertSingleStatement(() -> transactionRepository.seekPageByCryptoId(cryptoId, after, Long.MAX_VALUE, PAGE), 8);
+        assertSingleStatement(() -> transactionRepository.seekPageByType(TransactionType.SELL, after, Long.MAX_VALUE, PAGE), 6);
+        assertSingleStatement(() -> transactionRepository.seekPageByPortfolioIdAndType(
+                portfolioId, TransactionType.BUY, after, Long.MAX_VALUE, PAGE), 8);
+        assertSingleStatement(() -> transactionRepository.seekPageByCryptoIdAndType(
+                cryptoId, TransactionType.SELL, after, Long.MAX_VALUE, PAGE), 2);
+        assertSingleStatement(() -> transactionRepository.seekPageByTransactionDateBetween(
+                START, START.plusHours(9), after, Long.MAX_VALUE, PAGE), 10);
+        assertSingleStatement(() -> transactionRepository.seekPageByPortfolioIdAndTransactionDateBetween(
+                portfolioId, START, START.plusHours(9), after, Long.MAX_VALUE, PAGE), 4);
+    }
+    
+    private void assertSingleStatement(Supplier<List<Transaction>> query, int expectedRows) throws JsonProcessingException {
+        entityManager.clear();
+        statistics.clear();
+        
+        List<Transaction> transactions = query.get();
+        String json = objectMapper.writeValueAsString(transactions);
+        
+        assertThat(transactions).hasSize(expectedRows);
+        assertThat(json).contains("\"symbol\"").contains("\"description\"");
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL executados para %d transações", expectedRows)
+                .isEqualTo(1);
+    }
+}
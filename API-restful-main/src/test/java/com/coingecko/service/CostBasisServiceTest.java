@@ -0,0 +1,221 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.TransactionRow;
+import com.coingecko.event.TransactionsChangedEvent;
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Transaction.TransactionType;
+import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PortfolioRepository;
+import com.coingecko.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CostBasisServiceTest {
+    
+    private static final Long PORTFOLIO_ID = 1L;
+    private static final Long BTC = 10L;
+    private static final Long ETH = 20L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    
+    @Mock
+    private TransactionRepository transactionRepository;
+    
+    @Mock
+    private PortfolioRepository portfolioRepository;
+    
+    @Mock
+    private CryptoRepository cryptoRepository;
+    
+    @Mock
+    private HoldingsIndex holdingsIndex;
+    
+    @InjectMocks
+    private CostBasisService costBasisService;
+    
+    private final List<TransactionRow> history = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(costBasisService, "maxPortfolios", 100L);
+        ReflectionTestUtils.setField(costBasisService, "expireAfterAccess", Duration.ofMinutes(30));
+        costBasisService.init();
+        
+        when(portfolioRepository.existsById(PORTFOLIO_ID)).thenReturn(true);
+        when(transactionRepository.findRowsForCostBasis(PORTFOLIO_ID)).thenAnswer(invocation -> new ArrayList<>(history));
+        when(cryptoRepository.findAllById(any())).thenReturn(List.of(crypto(BTC, "BTC", "250"), crypto(ETH, "ETH", "10")));
+    }
+    
+    @Test
+    void sellConsumesOldestLotsFirst() {
+        history.add(row(1, BTC, TransactionType.BUY, "1", "100", 0));
+        history.add(row(2, BTC, TransactionType.BUY, "2", "200", 1));
+        // 1 do primeiro lote (custo 100) + 0.5 do segundo (custo 100), vendidos por 450
+        history.add(row(3, BTC, TransactionType.SELL, "1.5", "300", 2));
+        
+        Map<String, Object> pnl = costBasisService.getPnl(PORTFOLIO_ID);
+        Map<String, Object> btc = holding(pnl, BTC);
+        
+        assertThat((BigDecimal) btc.get("quantity")).isEqualByComparingTo("1.5");
+        assertThat((BigDecimal) btc.get("averageCost")).isEqualByComparingTo("200");
+        assertThat(btc.get("costBasis")).isEqualTo(new BigDecimal("300.00"));
+        assertThat(btc.get("realizedPnl")).isEqualTo(new BigDecimal("250.00"));
+        // 1.5 x 250 - 300
+        assertThat(btc.get("unrealizedPnl")).isEqualTo(new BigDecimal("75.00"));
+        assertThat(btc.get("openLots")).isEqualTo(1);
+        assertThat(pnl.get("totalPnl")).isEqualTo(new BigDecimal("325.00"));
+        assertThat(pnl.get("transactionsReplayed")).isEqualTo(3);
+    }
+    
+    @Test
+    void sellAcrossSeveralLotsAndCryptosKeepsThemApart() {
+        history.add(row(1, BTC, TransactionType.BUY, "1", "100", 0));
+        history.add(row(2, ETH, TransactionType.BUY, "5", "2", 1));
+        history.add(row(3, BTC, TransactionType.BUY, "1", "150", 2));
+        history.add(row(4, BTC, TransactionType.BUY, "1", "200", 3));
+        history.add(row(5, BTC, TransactionType.SELL, "2.5", "180", 4));
+        
+        Map<String, Object> pnl = costBasisService.getPnl(PORTFOLIO_ID);
+        Map<String, Object> btc = holding(pnl, BTC);
+        Map<String, Object> eth = holding(pnl, ETH);
+        
+        // 2.5 x 180 - (100 + 150 + 0.5 x 200)
+        assertThat(btc.get("realizedPnl")).isEqualTo(new BigDecimal("100.00"));
+        assertThat((BigDecimal) btc.get("quantity")).isEqualByComparingTo("0.5");
+        assertThat(btc.get("costBasis")).isEqualTo(new BigDecimal("100.00"));
+        assertThat(eth.get("realizedPnl")).isEqualTo(new BigDecimal("0.00"));
+        assertThat(eth.get("costBasis")).isEqualTo(new BigDecimal("10.00"));
+        assertThat(eth.get("openLots")).isEqualTo(1);
+    }
+    
+    @Test
+    void sellBeyondHoldingsOnlyRealizesMatchedQuantity() {
+        history.add(row(1, BTC, TransactionType.BUY, "1", "100", 0));
+        history.add(row(2, BTC, TransactionType.SELL, "3", "120", 1));
+        
+        Map<String, Object> btc = holding(costBasisService.getPnl(PORTFOLIO_ID), BTC);
+        
+        assertThat(btc.get("realizedPnl")).isEqualTo(new BigDecimal("20.00"));
+        assertThat((BigDecimal) btc.get("quantity")).isEqualByComparingTo("0");
+        assertThat(btc.get("averageCost")).isNull();
+        assertThat(btc.get("openLots")).isEqualTo(0);
+    }
+    
+    @Test
+    void ordersLotsByTransactionDateBeforeId() {
+        // A transação de id maior tem data anterior: é ela o lote mais antigo
+        history.add(row(2, BTC, TransactionType.BUY, "1", "50", 0));
+        history.add(row(1, BTC, TransactionType.BUY, "1", "100", 1));
+        history.add(row(3, BTC, TransactionType.SELL, "1", "100", 2));
+        
+        Map<String, Object> btc = holding(costBasisService.getPnl(PORTFOLIO_ID), BTC);
+        
+        assertThat(btc.get("realizedPnl")).isEqualTo(new BigDecimal("50.00"));
+        assertThat((BigDecimal) btc.get("averageCost")).isEqualByComparingTo("100");
+    }
+    
+    @Test
+    void appendedTransactionUpdatesCachedLotsWithoutReplay() {
+        history.add(row(1, BTC, TransactionType.BUY, "2", "100", 0));
+        costBasisService.getPnl(PORTFOLIO_ID);
+        
+        TransactionRow sell = row(2, BTC, TransactionType.SELL, "1", "130", 1);
+        history.add(sell);
+        costBasisService.onTransactionsChanged(TransactionsChangedEvent.appended(PORTFOLIO_ID, sell));
+        Map<String, Object> pnl = costBasisService.getPnl(PORTFOLIO_ID);
+        
+        assertThat(holding(pnl, BTC).get("realizedPnl")).isEqualTo(new BigDecimal("30.00"));
+        verify(transactionRepository, times(1)).findRowsForCostBasis(PORTFOLIO_ID);
+        assertThat(costBasisService.getStatus()).containsEntry("replays", 1L).containsEntry("incrementalUpdates", 1L);
+    }
+    
+    @Test
+    void outOfOrderAppendAndRewriteTriggerReplay() {
+        history.add(row(1, BTC, TransactionType.BUY, "1", "100", 5));
+        costBasisService.getPnl(PORTFOLIO_ID);
+        
+        // Data anterior à última transação aplicada: os lotes precisam ser refeitos
+        TransactionRow backdated = row(2, BTC, TransactionType.BUY, "1", "50", 0);
+        history.add(0, backdated);
+        costBasisService.onTransactionsChanged(TransactionsChangedEvent.appended(PORTFOLIO_ID, backdated));
+        Map<String, Object> btc = holding(costBasisService.getPnl(PORTFOLIO_ID), BTC);
+        assertThat(btc.get("costBasis")).isEqualTo(new BigDecimal("150.00"));
+        
+        history.remove(backdated);
+        costBasisService.onTransactionsChanged(TransactionsChangedEvent.rewritten(PORTFOLIO_ID));
+        btc = holding(costBasisService.getPnl(PORTFOLIO_ID), BTC);
+        assertThat(btc.get("costBasis")).isEqualTo(new BigDecimal("100.00"));
+        
+        verify(transactionRepository, times(3)).findRowsForCostBasis(PORTFOLIO_ID);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventBetweenReplayCheckAndCacheInsertDoesNotLeaveStaleLots() {
+        history.add(row(1, BTC, TransactionType.BUY, "2", "100", 0));
+        TransactionRow sell = row(2, BTC, TransactionType.SELL, "1", "130", 1);
+        
+        // O evento chega depois da checagem do contador e antes do putIfAbsent: ainda não há
+        // estado no cache para ele atualizar, e o replay já pronto não inclui a venda
+        Cache<Long, Object> cache = (Cache<Long, Object>) ReflectionTestUtils.getField(costBasisService, "lotsByPortfolio");
+        ConcurrentMap<Long, Object> map = spy(cache.asMap());
+        Cache<Long, Object> spiedCache = spy(cache);
+        doReturn(map).when(spiedCache).asMap();
+        doAnswer(invocation -> {
+            history.add(sell);
+            costBasisService.onTransactionsChanged(TransactionsChangedEvent.appended(PORTFOLIO_ID, sell));
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(map).putIfAbsent(any(), any());
+        ReflectionTestUtils.setField(costBasisService, "lotsByPortfolio", spiedCache);
+        costBasisService.getPnl(PORTFOLIO_ID);
+        
+        Map<String, Object> btc = holding(costBasisService.getPnl(PORTFOLIO_ID), BTC);
+        assertThat(btc.get("realizedPnl")).isEqualTo(new BigDecimal("30.00"));
+        assertThat(btc.get("quantity")).isEqualTo(new BigDecimal("1"));
+        verify(transactionRepository, times(2)).findRowsForCostBasis(PORTFOLIO_ID);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> holding(Map<String, Object> pnl, Long cryptoId) {
+        return ((List<Map<String, Object>>) pnl.get("holdings")).stream()
+                .filter(holding -> cryptoId.equals(holding.get("cryptoId")))
+                .findFirst()
+                .orElseThrow();
+    }
+    
+    private static TransactionRow row(long id, Long cryptoId, TransactionType type, String quantity, String price, int day) {
+        return new TransactionRow(id, cryptoId, type, new BigDecimal(quantity), new BigDecimal(price), START.plusDays(day));
+    }
+    
+    private static Crypto crypto(Long id, String symbol, String price) {
+        Crypto crypto = new Crypto(symbol, symbol, new BigDecimal(price));
+        crypto.setId(id);
+        return crypto;
+    }
+}
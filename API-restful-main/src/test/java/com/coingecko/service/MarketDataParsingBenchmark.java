@@ -0,0 +1,142 @@
+package com.coingecko.service;
+
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse de uma página de /coins/markets: árvore JsonNode sobre o corpo agregado em String
+ * (caminho anterior) contra o {@link MarketDataStreamParser} sobre os DataBuffers.
+ * Rodar pelo main (classpath de teste); o GCProfiler informa a alocação por operação
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketDataParsingBenchmark {
+    
+    // Tamanho dos blocos entregues pelo Netty ao WebClient
+    private static final int CHUNK_SIZE = 8 * 1024;
+    
+    @Param({"250"})
+    private int coins;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultDataBufferFactory buffers = new DefaultDataBufferFactory();
+    private byte[] body;
+    private List<byte[]> chunks;
+    
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < coins; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"coin-").append(i).append("\",\"symbol\":\"c").append(i)
+                .append("\",\"name\":\"Coin ").append(i).append("\",\"image\":\"https://assets.coingecko.com/coins/images/")
+                .append(i).append("/large/coin.png\",\"current_price\":").append(1000 + i).append(".12345678")
+                .append(",\"market_cap\":").append(1_000_000_000L + i * 7919L)
+                .append(",\"market_cap_rank\":").append(i + 1)
+                .append(",\"total_volume\":").append(50_000_000L + i * 131L).append(".25")
+                .append(",\"high_24h\":").append(1010 + i).append(".5,\"low_24h\":").append(990 + i).append(".5")
+                .append(",\"price_change_24h\":-").append(i % 17).append(".0421")
+                .append(",\"price_change_percentage_24h\":-").append(i % 9).append(".31337")
+                .append(",\"circulating_supply\":19500000.0,\"total_supply\":21000000.0,\"max_supply\":21000000.0")
+                .append(",\"ath\":73738,\"ath_date\":\"2024-03-14T07:10:36.635Z\",\"roi\":null")
+                .append(",\"last_updated\":\"2024-05-01T12:00:00.000Z\"}");
+        }
+        json.append(']');
+        body = json.toString().getBytes(StandardCharsets.UTF_8);
+        
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            chunks.add(Arrays.copyOfRange(body, offset, Math.min(body.length, offset + CHUNK_SIZE)));
+        }
+    }
+    
+    @Benchmark
+    public List<Crypto> treeParse() throws IOException {
+        // Como o bodyToMono(String) anterior: agrega os blocos e decodifica em String
+        Flux<DataBuffer> buffered = Flux.fromIterable(chunks).map(buffers::wrap);
+        String json = DataBufferUtils.join(buffered)
+                .map(joined -> {
+                    String text = joined.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(joined);
+                    return text;
+                })
+                .block();
+        
+        List<Crypto> cryptos = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(json)) {
+            if (!node.has("name") || !node.has("symbol") || !node.has("current_price")) {
+                continue;
+            }
+            Crypto crypto = new Crypto();
+            crypto.setName(node.get("name").asText());
+            crypto.setSymbol(node.get("symbol").asText().toUpperCase());
+            crypto.setCurrentPrice(new BigDecimal(node.get("current_price").asText()));
+            JsonNode marketCap = node.get("market_cap");
+            if (marketCap != null && !marketCap.isNull()) {
+                crypto.setMarketCap(new BigDecimal(marketCap.asText()));
+            }
+            JsonNode totalVolume = node.get("total_volume");
+            if (totalVolume != null && !totalVolume.isNull()) {
+                crypto.setVolume24h(new BigDecimal(totalVolume.asText()));
+            }
+            JsonNode priceChange = node.get("price_change_percentage_24h");
+            if (priceChange != null && !priceChange.isNull()) {
+                crypto.setChange24h(new BigDecimal(priceChange.asText()));
+            }
+            JsonNode image = node.get("image");
+            if (image != null && !image.isNull()) {
+                crypto.setImageUrl(image.asText());
+            }
+            cryptos.add(crypto);
+        }
+        return cryptos;
+    }
+    
+    @Benchmark
+    public List<Crypto> streamParse() {
+        Flux<DataBuffer> buffered = Flux.fromIterable(chunks).map(buffers::wrap);
+        return MarketDataStreamParser.parse(buffered, objectMapper.getFactory()).collectList().block();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MarketDataParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
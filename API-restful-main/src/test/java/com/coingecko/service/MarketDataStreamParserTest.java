@@ -0,0 +1,115 @@
+package com.coingecko.service;
+
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MarketDataStreamParserTest {
+    
+    private static final String MARKETS = """
+        [
+          {"id": "bitcoin", "symbol": "btc", "name": "Bitcoin", "image": "https://img/btc.png",
+           "current_price": 67123.45678901, "market_cap": 1320000000000, "total_volume": 28500000000.5,
+           "price_change_percentage_24h": -1.2345, "roi": null, "sparkline": {"price": [1, 2, 3]}},
+          {"id": "ethereum", "symbol": "eth", "name": "Ethéreo \\"Classic\\" ₿", "image": null,
+           "current_price": 3500, "market_cap": null, "total_volume": 1.5E10,
+           "price_change_percentage_24h": 0.5, "roi": {"times": 80.5, "currency": "btc"}},
+          {"id": "no-price", "symbol": "np", "name": "Sem Preço", "current_price": null},
+          {"id": "no-name", "symbol": "nn", "current_price": 1}
+        ]
+        """;
+    
+    private final JsonFactory factory = new JsonFactory();
+    private final DefaultDataBufferFactory buffers = new DefaultDataBufferFactory();
+    
+    @Test
+    void parsesWholeBodyInOneBuffer() {
+        List<Crypto> cryptos = parse(List.of(MARKETS.getBytes(StandardCharsets.UTF_8)));
+        
+        assertMarkets(cryptos);
+    }
+    
+    @Test
+    void parsesBodySplitAtEveryByteBoundary() {
+        byte[] body = MARKETS.getBytes(StandardCharsets.UTF_8);
+        
+        // Cada corte cai em um ponto diferente: meio de número, de nome de campo e de caractere UTF-8
+        for (int cut = 1; cut < body.length; cut++) {
+            List<byte[]> chunks = List.of(Arrays.copyOfRange(body, 0, cut), Arrays.copyOfRange(body, cut, body.length));
+            assertMarkets(parse(chunks));
+        }
+    }
+    
+    @Test
+    void parsesBodyFedOneByteAtATime() {
+        byte[] body = MARKETS.getBytes(StandardCharsets.UTF_8);
+        List<byte[]> chunks = new ArrayList<>();
+        for (byte b : body) {
+            chunks.add(new byte[] {b});
+        }
+        
+        assertMarkets(parse(chunks));
+    }
+    
+    @Test
+    void emptyArrayYieldsNoCryptos() {
+        assertThat(parse(List.of("[]".getBytes(StandardCharsets.UTF_8)))).isEmpty();
+    }
+    
+    @Test
+    void rejectsErrorObjectInPlaceOfArray() {
+        byte[] body = "{\"status\": {\"error_code\": 429, \"error_message\": \"rate limited\"}}".getBytes(StandardCharsets.UTF_8);
+        
+        assertThatThrownBy(() -> parse(List.of(body)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("objeto em vez de um array");
+    }
+    
+    @Test
+    void rejectsTruncatedBody() {
+        byte[] body = MARKETS.getBytes(StandardCharsets.UTF_8);
+        byte[] truncated = Arrays.copyOf(body, body.length / 2);
+        
+        assertThatThrownBy(() -> parse(List.of(truncated)))
+                .isInstanceOf(RuntimeException.class);
+    }
+    
+    private List<Crypto> parse(List<byte[]> chunks) {
+        Flux<DataBuffer> body = Flux.fromIterable(chunks).map(buffers::wrap);
+        return MarketDataStreamParser.parse(body, factory).collectList().block();
+    }
+    
+    private static void assertMarkets(List<Crypto> cryptos) {
+        assertThat(cryptos).hasSize(2);
+        
+        Crypto bitcoin = cryptos.get(0);
+        assertThat(bitcoin.getName()).isEqualTo("Bitcoin");
+        assertThat(bitcoin.getSymbol()).isEqualTo("BTC");
+        assertThat(bitcoin.getImageUrl()).isEqualTo("https://img/btc.png");
+        assertThat(bitcoin.getCurrentPrice()).isEqualByComparingTo("67123.45678901");
+        assertThat(bitcoin.getMarketCap()).isEqualByComparingTo("1320000000000");
+        assertThat(bitcoin.getVolume24h()).isEqualByComparingTo("28500000000.5");
+        assertThat(bitcoin.getChange24h()).isEqualByComparingTo("-1.2345");
+        
+        Crypto ethereum = cryptos.get(1);
+        assertThat(ethereum.getName()).isEqualTo("Ethéreo \"Classic\" ₿");
+        assertThat(ethereum.getSymbol()).isEqualTo("ETH");
+        assertThat(ethereum.getImageUrl()).isNull();
+        assertThat(ethereum.getCurrentPrice()).isEqualByComparingTo(BigDecimal.valueOf(3500));
+        assertThat(ethereum.getMarketCap()).isNull();
+        assertThat(ethereum.getVolume24h()).isEqualByComparingTo("15000000000");
+        assertThat(ethereum.getChange24h()).isEqualByComparingTo("0.5");
+    }
+}
@@ -0,0 +1,109 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.CryptoTick;
+import com.coingecko.model.Crypto;
+import com.coingecko.service.MarketDeltaState.Delta;
+import com.coingecko.service.MarketDeltaState.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarketDeltaStateTest {
+    
+    private final MarketDeltaState state = new MarketDeltaState();
+    
+    @Test
+    void newCoinCarriesEveryField() {
+        Delta delta = state.apply(List.of(crypto("BTC", "67000", "1300000000000", "25000000000", "1.5")));
+        
+        assertThat(delta.sequence()).isEqualTo(1);
+        assertThat(delta.changes()).singleElement().satisfies(change -> assertThat(change)
+                .containsOnlyKeys("symbol", "name", "currentPrice", "marketCap", "volume24h", "change24h")
+                .containsEntry("symbol", "BTC")
+                .containsEntry("currentPrice", new BigDecimal("67000.00000000")));
+    }
+    
+    @Test
+    void knownCoinCarriesOnlyChangedFields() {
+        state.seed(List.of(crypto("BTC", "67000", "1300000000000", "25000000000", "1.5")));
+        
+        Delta delta = state.apply(List.of(crypto("BTC", "67100", "1300000000000", "25000000000", "1.6")));
+        
+        assertThat(delta.changes()).singleElement().satisfies(change -> assertThat(change)
+                .containsOnlyKeys("symbol", "currentPrice", "change24h")
+                .containsEntry("change24h", new BigDecimal("1.60")));
+    }
+    
+    @Test
+    void unchangedOrBelowColumnScaleYieldsNoDelta() {
+        state.seed(List.of(crypto("BTC", "67000", "1300000000000", "25000000000", "1.5")));
+        
+        // Mesma escala das colunas: 1.5 == 1.50 e 1.501 arredonda para 1.50
+        assertThat(state.apply(List.of(crypto("BTC", "67000.000000001", "1300000000000.004", "25000000000", "1.501")))).isNull();
+        assertThat(state.sequence()).isZero();
+    }
+    
+    @Test
+    void sequenceAdvancesOnlyWhenSomethingChanged() {
+        Crypto btc = crypto("BTC", "67000", null, null, null);
+        
+        assertThat(state.apply(List.of(btc)).sequence()).isEqualTo(1);
+        assertThat(state.apply(List.of(btc))).isNull();
+        assertThat(state.apply(List.of(crypto("BTC", "67001", null, null, null))).sequence()).isEqualTo(2);
+        assertThat(state.sequence()).isEqualTo(2);
+    }
+    
+    @Test
+    void nullTransitionsAreChanges() {
+        state.seed(List.of(crypto("BTC", "67000", "1300000000000", null, null)));
+        
+        Delta delta = state.apply(List.of(crypto("BTC", "67000", null, "25000000000", null)));
+        
+        assertThat(delta.changes()).singleElement().satisfies(change -> {
+            assertThat(change).containsOnlyKeys("symbol", "marketCap", "volume24h");
+            assertThat(change.get("marketCap")).isNull();
+        });
+    }
+    
+    @Test
+    void coinsWithoutSymbolAreIgnored() {
+        assertThat(state.apply(List.of(crypto(null, "1", null, null, null)))).isNull();
+        assertThat(state.snapshot().cryptos()).isEmpty();
+    }
+    
+    @Test
+    void snapshotHoldsFullStateAtCurrentSequence() {
+        state.seed(List.of(crypto("BTC", "67000", null, null, null), crypto("ETH", "3500", null, null, null)));
+        state.apply(List.of(crypto("ETH", "3600", null, null, null), crypto("SOL", "150", null, null, null)));
+        
+        Snapshot snapshot = state.snapshot();
+        
+        assertThat(snapshot.sequence()).isEqualTo(1);
+        assertThat(snapshot.cryptos()).extracting(CryptoTick::symbol).containsExactly("BTC", "ETH", "SOL");
+        assertThat(snapshot.cryptos()).extracting(CryptoTick::currentPrice).containsExactly(
+                new BigDecimal("67000.00000000"), new BigDecimal("3600.00000000"), new BigDecimal("150.00000000"));
+    }
+    
+    @Test
+    void deltaListsEveryChangedCoinOnce() {
+        state.seed(List.of(crypto("BTC", "67000", null, null, null), crypto("ETH", "3500", null, null, null)));
+        
+        Delta delta = state.apply(List.of(crypto("BTC", "67000", null, null, null),
+                crypto("ETH", "3501", null, null, null), crypto("SOL", "150", null, null, null)));
+        
+        assertThat(delta.changes()).extracting(change -> change.get("symbol")).containsExactly("ETH", "SOL");
+        assertThat(delta.changes()).extracting(Map::size).containsExactly(2, 6);
+    }
+    
+    private static Crypto crypto(String symbol, String price, String marketCap, String volume, String change) {
+        Crypto crypto = new Crypto(symbol != null ? "Coin " + symbol : "Sem símbolo", symbol, new BigDecimal(price));
+        crypto.setMarketCap(marketCap != null ? new BigDecimal(marketCap) : null);
+        crypto.setVolume24h(volume != null ? new BigDecimal(volume) : null);
+        crypto.setChange24h(change != null ? new BigDecimal(change) : null);
+        return crypto;
+    }
+}
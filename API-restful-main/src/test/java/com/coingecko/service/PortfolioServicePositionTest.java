@@ -0,0 +1,99 @@
+package com.coingecko.service;
+
+import com.coingecko.config.PaginationProperties;
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Portfolio;
+import com.coingecko.model.Position;
+import com.coingecko.repository.PositionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Posições mantidas por delta: a primeira compra insere a posição via JDBC, as demais
+ * escritas somam no banco, e nenhuma venda pode deixar a posição negativa.
+ */
+@DataJpaTest
+@Import({PortfolioService.class, PaginationProperties.class})
+class PortfolioServicePositionTest {
+    
+    @Autowired
+    private PortfolioService portfolioService;
+    
+    @Autowired
+    private PositionRepository positionRepository;
+    
+    @Autowired
+    private TestEntityManager entityManager;
+    
+    private Portfolio portfolio;
+    private Crypto btc;
+    private Crypto eth;
+    
+    @BeforeEach
+    void seed() {
+        portfolio = entityManager.persistAndFlush(new Portfolio("Principal", "Carteira principal"));
+        btc = entityManager.persistAndFlush(new Crypto("Bitcoin", "BTC", new BigDecimal("50000")));
+        eth = entityManager.persistAndFlush(new Crypto("Ethereum", "ETH", new BigDecimal("3000")));
+    }
+    
+    @Test
+    void sellWithinHoldingsIsApplied() {
+        portfolioService.applyPositionDelta(portfolio, btc, new BigDecimal("2"));
+        portfolioService.applyPositionDelta(portfolio, btc, new BigDecimal("-2"));
+        
+        assertThat(quantity(btc)).isEqualByComparingTo("0");
+    }
+    
+    @Test
+    void oversellOfExistingPositionIsRejected() {
+        portfolioService.applyPositionDelta(portfolio, btc, new BigDecimal("1.5"));
+        
+        assertThatThrownBy(() -> portfolioService.applyPositionDelta(portfolio, btc, new BigDecimal("-1.50000001")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Quantidade insuficiente de BTC");
+        assertThat(quantity(btc)).isEqualByComparingTo("1.5");
+    }
+    
+    @Test
+    void sellWithoutPositionIsRejected() {
+        assertThatThrownBy(() -> portfolioService.applyPositionDelta(portfolio, eth, new BigDecimal("-1")))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Quantidade insuficiente de ETH");
+        assertThat(positionRepository.findByPortfolioId(portfolio.getId())).isEmpty();
+    }
+    
+    @Test
+    void jdbcInsertsAndHibernateShareTheSequenceWithoutGaps() {
+        portfolioService.applyPositionDelta(portfolio, btc, BigDecimal.ONE);
+        portfolioService.applyPositionDelta(portfolio, eth, BigDecimal.ONE);
+        Crypto sol = entityManager.persistAndFlush(new Crypto("Solana", "SOL", new BigDecimal("150")));
+        positionRepository.saveAndFlush(new Position(portfolio, sol, BigDecimal.ONE));
+        
+        List<Long> ids = positionRepository.findByPortfolioId(portfolio.getId()).stream()
+                .map(Position::getId)
+                .sorted(Comparator.naturalOrder())
+                .toList();
+        assertThat(ids).hasSize(3);
+        assertThat(ids.get(2) - ids.get(0)).isEqualTo(2);
+    }
+    
+    private BigDecimal quantity(Crypto crypto) {
+        entityManager.clear();
+        return positionRepository.findByPortfolioId(portfolio.getId()).stream()
+                .filter(position -> position.getCrypto().getId().equals(crypto.getId()))
+                .findFirst()
+                .orElseThrow()
+                .getQuantity();
+    }
+}
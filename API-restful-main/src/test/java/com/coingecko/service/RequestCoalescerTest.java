@@ -0,0 +1,101 @@
+package com.coingecko.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+    
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    
+    @Test
+    void concurrentIdenticalCallsShareOneUpstreamRequest() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+        
+        Mono<String> first = coalescer.coalesce("simple-price", "bitcoin:usd", () -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        });
+        Mono<String> second = coalescer.coalesce("simple-price", "bitcoin:usd", () -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        });
+        
+        Mono<String> firstResult = first.cache();
+        Mono<String> secondResult = second.cache();
+        firstResult.subscribe();
+        secondResult.subscribe();
+        response.tryEmitValue("67000");
+        
+        assertThat(firstResult.block(Duration.ofSeconds(1))).isEqualTo("67000");
+        assertThat(secondResult.block(Duration.ofSeconds(1))).isEqualTo("67000");
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(coalescer.getStatus()).containsEntry("coalesced", 1L).containsEntry("upstreamCalls", 1L);
+    }
+    
+    @Test
+    void completedCallIsNotReused() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        
+        for (int i = 0; i < 3; i++) {
+            String value = coalescer.coalesce("coin", "bitcoin",
+                    () -> Mono.fromSupplier(() -> "call-" + upstreamCalls.incrementAndGet())).block(Duration.ofSeconds(1));
+            assertThat(value).isEqualTo("call-" + (i + 1));
+        }
+        
+        assertThat(upstreamCalls).hasValue(3);
+        assertThat(coalescer.getStatus()).containsEntry("inFlight", 0);
+    }
+    
+    @Test
+    void differentKeysAreNotCoalesced() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> never = Sinks.one();
+        
+        coalescer.coalesce("coin", "bitcoin", () -> {
+            upstreamCalls.incrementAndGet();
+            return never.asMono();
+        }).subscribe();
+        coalescer.coalesce("coin", "ethereum", () -> {
+            upstreamCalls.incrementAndGet();
+            return never.asMono();
+        }).subscribe();
+        coalescer.coalesce("markets", "bitcoin", () -> {
+            upstreamCalls.incrementAndGet();
+            return never.asMono();
+        }).subscribe();
+        
+        assertThat(upstreamCalls).hasValue(3);
+        assertThat(coalescer.getStatus()).containsEntry("inFlight", 3);
+    }
+    
+    @Test
+    void failureReachesEveryWaiterAndClearsTheEntry() {
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> first = coalescer.coalesce("coin", "bitcoin", response::asMono).cache();
+        Mono<String> second = coalescer.coalesce("coin", "bitcoin", response::asMono).cache();
+        first.subscribe(value -> { }, error -> { });
+        second.subscribe(value -> { }, error -> { });
+        
+        response.tryEmitError(new RuntimeException("upstream indisponível"));
+        
+        assertThatThrownBy(() -> first.block(Duration.ofSeconds(1))).hasMessage("upstream indisponível");
+        assertThatThrownBy(() -> second.block(Duration.ofSeconds(1))).hasMessage("upstream indisponível");
+        
+        // Depois da falha uma nova chamada vai de novo ao upstream
+        String retried = coalescer.coalesce("coin", "bitcoin", () -> Mono.just("ok")).block(Duration.ofSeconds(1));
+        assertThat(retried).isEqualTo("ok");
+        
+        @SuppressWarnings("unchecked")
+        Map<String, Object> coin = (Map<String, Object>) ((Map<String, Object>) coalescer.getStatus().get("operations")).get("coin");
+        assertThat(coin).containsEntry("coalesced", 1L).containsEntry("upstreamCalls", 2L);
+    }
+}
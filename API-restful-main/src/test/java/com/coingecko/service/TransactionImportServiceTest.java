@@ -0,0 +1,280 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.TransactionFileFormat;
+import com.coingecko.model.Crypto;
+import com.coingecko.model.Portfolio;
+import com.coingecko.model.Transaction;
+import com.coingecko.model.Transaction.TransactionType;
+import com.coingecko.repository.CryptoRepository;
+import com.coingecko.repository.PortfolioRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class TransactionImportServiceTest {
+    
+    private static final String HEADER = "id,portfolioId,cryptoId,symbol,type,quantity,pricePerUnit,totalValue,transactionDate,notes\r\n";
+    
+    @Mock
+    private PortfolioRepository portfolioRepository;
+    
+    @Mock
+    private CryptoRepository cryptoRepository;
+    
+    @Mock
+    private PortfolioService portfolioService;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
+    @Mock
+    private EntityManager entityManager;
+    
+    @Mock
+    private Session session;
+    
+    @InjectMocks
+    private TransactionImportService importService;
+    
+    private final List<Transaction> persisted = new ArrayList<>();
+    private final List<Set<Long>> portfolioLookups = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        
+        // Executa o callback na hora, como faria o TransactionTemplate com uma transação real
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(entityManager.getReference(eq(Portfolio.class), anyLong())).thenAnswer(invocation -> {
+            Portfolio portfolio = new Portfolio();
+            portfolio.setId(invocation.getArgument(1));
+            return portfolio;
+        });
+        when(entityManager.getReference(eq(Crypto.class), anyLong())).thenAnswer(invocation -> {
+            Crypto crypto = new Crypto();
+            crypto.setId(invocation.getArgument(1));
+            return crypto;
+        });
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any(Transaction.class));
+        
+        when(portfolioRepository.findExistingIds(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            portfolioLookups.add(Set.copyOf(ids));
+            return existing(ids, Set.of(1L, 2L));
+        });
+        when(cryptoRepository.findExistingIds(any())).thenAnswer(invocation -> existing(invocation.getArgument(0), Set.of(10L)));
+    }
+    
+    @Test
+    void csvQuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        String csv = HEADER
+                + "1,1,10,BTC,BUY,0.5,60000,30000.00,2024-01-01T10:00:00,\"comprado, enfim\"\r\n"
+                + "2,1,10,BTC,SELL,0.1,65000,,2024-02-01T10:00:00,\"dizem \"\"alta\"\"\"\r\n"
+                + "\r\n"
+                + "3,2,10,BTC,buy,1,61000,,2024-03-01T10:00:00,\"linha 1\nlinha 2\"\r\n";
+        
+        Map<String, Object> result = importCsv(csv);
+        
+        assertThat(result).containsEntry("rowsRead", 3L).containsEntry("imported", 3L).containsEntry("rejected", 0L);
+        assertThat(persisted).extracting(Transaction::getNotes)
+                .containsExactly("comprado, enfim", "dizem \"alta\"", "linha 1\nlinha 2");
+        
+        Transaction first = persisted.get(0);
+        assertThat(first.getPortfolio().getId()).isEqualTo(1L);
+        assertThat(first.getCrypto().getId()).isEqualTo(10L);
+        assertThat(first.getType()).isEqualTo(TransactionType.BUY);
+        assertThat(first.getTotalValue()).isEqualByComparingTo("30000.00");
+        assertThat(first.getTransactionDate()).isEqualTo(LocalDateTime.of(2024, 1, 1, 10, 0));
+        // Sem totalValue no arquivo: quantidade x preço
+        assertThat(persisted.get(1).getTotalValue()).isEqualByComparingTo("6500");
+        assertThat(persisted.get(2).getType()).isEqualTo(TransactionType.BUY);
+        
+        verify(portfolioService).rebuildPositions(1L);
+        verify(portfolioService).rebuildPositions(2L);
+    }
+    
+    @Test
+    void csvColumnsAreMatchedByHeaderName() throws IOException {
+        String csv = "notes,quantity,type,cryptoId,portfolioId,pricePerUnit\n"
+                + "\"\",2,SELL,10,1,100\n";
+        
+        Map<String, Object> result = importCsv(csv);
+        
+        assertThat(result).containsEntry("imported", 1L);
+        Transaction transaction = persisted.get(0);
+        assertThat(transaction.getType()).isEqualTo(TransactionType.SELL);
+        assertThat(transaction.getQuantity()).isEqualByComparingTo("2");
+        assertThat(transaction.getNotes()).isNull();
+    }
+    
+    @Test
+    void malformedAndInvalidRowsAreRejectedWithTheirRowNumber() throws IOException {
+        String csv = HEADER
+                + "1,1,10,BTC,BUY,abc,60000,,2024-01-01T10:00:00,\n"
+                + "2,9,10,BTC,BUY,1,60000,,2024-01-01T10:00:00,\n"
+                + "3,1,10,BTC,HOLD,1,60000,,2024-01-01T10:00:00,\n"
+                + "4,1,10,BTC,BUY,-1,60000,,2024-01-01T10:00:00,\n"
+                + "5,1,10,BTC,BUY,1,1000000000000,,2024-01-01T10:00:00,\n"
+                + "6,1,10,BTC,BUY,1,100,1000000000000000000,2024-01-01T10:00:00,\n"
+                + "7,1,10,BTC,BUY,1,100,,2024-01-01T10:00:00,ok\n";
+        
+        Map<String, Object> result = importCsv(csv);
+        
+        assertThat(result).containsEntry("rowsRead", 7L).containsEntry("imported", 1L).containsEntry("rejected", 6L);
+        assertThat(errors(result)).extracting(error -> error.get("row")).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(errors(result)).extracting(error -> (String) error.get("message")).satisfiesExactly(
+                message -> assertThat(message).startsWith("Valor inválido"),
+                message -> assertThat(message).startsWith("Portfólio não encontrado"),
+                message -> assertThat(message).startsWith("Tipo de transação inválido"),
+                message -> assertThat(message).startsWith("Quantidade deve ser maior"),
+                message -> assertThat(message).startsWith("Preço excede"),
+                message -> assertThat(message).startsWith("Valor total excede"));
+        assertThat(persisted).extracting(Transaction::getNotes).containsExactly("ok");
+    }
+    
+    @Test
+    void ndjsonRowsAreImported() throws IOException {
+        String ndjson = "{\"portfolioId\":1,\"cryptoId\":10,\"type\":\"BUY\",\"quantity\":2,\"pricePerUnit\":50,\"symbol\":\"BTC\"}\n"
+                + "\n"
+                + "{não é json}\n";
+        
+        Map<String, Object> result = importService.importTransactions(TransactionFileFormat.NDJSON,
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+        
+        assertThat(result).containsEntry("imported", 1L).containsEntry("rejected", 1L);
+        assertThat(errors(result).get(0)).containsEntry("row", 3L);
+        assertThat(persisted.get(0).getTotalValue()).isEqualByComparingTo("100");
+    }
+    
+    @Test
+    void failedChunkIsRejectedWithoutCountingItsRows() throws IOException {
+        // Segundo lote (linhas 3 e 4) falha no flush; o primeiro e o terceiro seguem
+        doAnswer(invocation -> null)
+                .doThrow(new RuntimeException("violação de restrição"))
+                .doAnswer(invocation -> null)
+                .when(entityManager).flush();
+        String csv = HEADER
+                + "1,1,10,BTC,BUY,1,100,,,\n"
+                + "2,1,10,BTC,BUY,1,100,,,\n"
+                + "3,2,10,BTC,BUY,1,100,,,\n"
+                + "4,2,10,BTC,BUY,1,100,,,\n"
+                + "5,1,10,BTC,BUY,1,100,,,\n";
+        
+        Map<String, Object> result = importCsv(csv);
+        
+        assertThat(result).containsEntry("imported", 3L).containsEntry("rejected", 2L).containsEntry("affectedPortfolios", 1);
+        assertThat(errors(result)).extracting(error -> error.get("row")).containsExactly(3L, 4L);
+        assertThat(errors(result)).allSatisfy(error ->
+                assertThat((String) error.get("message")).isEqualTo("Lote desfeito: violação de restrição"));
+        verify(portfolioService).rebuildPositions(1L);
+        verify(portfolioService, never()).rebuildPositions(2L);
+    }
+    
+    @Test
+    void failedRebuildIsReportedAndOtherPortfoliosAreStillRebuilt() throws IOException {
+        doAnswer(invocation -> {
+            throw new RuntimeException("posição negativa");
+        }).when(portfolioService).rebuildPositions(1L);
+        String csv = HEADER
+                + "1,1,10,BTC,BUY,1,100,,,\n"
+                + "2,2,10,BTC,BUY,1,100,,,\n";
+        
+        Map<String, Object> result = importCsv(csv);
+        
+        assertThat(result).containsEntry("imported", 2L).containsEntry("affectedPortfolios", 2);
+        assertThat(result.get("failedRebuilds")).isEqualTo(List.of(1L));
+        verify(portfolioService).rebuildPositions(2L);
+    }
+    
+    @Test
+    void failedRebuildDoesNotHideTheImportFailure() {
+        // Falha de leitura no meio do arquivo, depois de um lote confirmado
+        InputStream in = new SequenceInputStream(
+                new ByteArrayInputStream((HEADER + "1,1,10,BTC,BUY,1,100,,,\n2,1,10,BTC,BUY,1,100,,,\n")
+                        .getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("conexão encerrada");
+                    }
+                });
+        doAnswer(invocation -> {
+            throw new RuntimeException("posição negativa");
+        }).when(portfolioService).rebuildPositions(1L);
+        
+        assertThatThrownBy(() -> importService.importTransactions(TransactionFileFormat.CSV, in))
+                .isInstanceOf(IOException.class)
+                .hasMessage("conexão encerrada");
+        verify(portfolioService).rebuildPositions(1L);
+    }
+    
+    @Test
+    void idsAreLookedUpOncePerImport() throws IOException {
+        String csv = HEADER
+                + "1,1,10,BTC,BUY,1,100,,,\n"
+                + "2,1,10,BTC,BUY,1,100,,,\n"
+                + "3,1,10,BTC,BUY,1,100,,,\n";
+        
+        importCsv(csv);
+        
+        // Dois lotes (batch-size 2), mas o portfólio 1 já foi validado no primeiro
+        assertThat(portfolioLookups).containsExactly(Set.of(1L));
+    }
+    
+    private Map<String, Object> importCsv(String csv) throws IOException {
+        return importService.importTransactions(TransactionFileFormat.CSV,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> errors(Map<String, Object> result) {
+        return (List<Map<String, Object>>) result.get("errors");
+    }
+    
+    private static List<Long> existing(Collection<Long> ids, Set<Long> known) {
+        return ids.stream().filter(known::contains).toList();
+    }
+}
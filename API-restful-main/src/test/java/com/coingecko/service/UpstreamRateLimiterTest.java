@@ -0,0 +1,132 @@
+package com.coingecko.service;
+
+import com.coingecko.exception.UpstreamRateLimitedException;
+import com.coingecko.service.UpstreamRateLimiter.Priority;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamRateLimiterTest {
+    
+    @Test
+    void grantsQueuedRequestsByPriorityThenArrivalOrder() {
+        // 1 token a cada 200 ms: os pedidos chegam todos antes do próximo token
+        UpstreamRateLimiter limiter = limiter(1, 300, 10, Duration.ofSeconds(10));
+        limiter.acquire(Priority.USER).block(Duration.ofSeconds(1));
+        
+        List<String> granted = Collections.synchronizedList(new ArrayList<>());
+        Mono<Void> all = Mono.when(
+                tracked(limiter, Priority.DIAGNOSTIC, "diagnostic", granted),
+                tracked(limiter, Priority.USER, "user-1", granted),
+                tracked(limiter, Priority.SCHEDULED, "scheduled", granted),
+                tracked(limiter, Priority.USER, "user-2", granted));
+        all.block(Duration.ofSeconds(5));
+        
+        assertThat(granted).containsExactly("scheduled", "user-1", "user-2", "diagnostic");
+    }
+    
+    @Test
+    void rejectsWhenQueueIsFull() {
+        UpstreamRateLimiter limiter = limiter(1, 1, 1, Duration.ofSeconds(10));
+        limiter.acquire(Priority.USER).block(Duration.ofSeconds(1));
+        
+        // O primeiro aguarda na fila (cheia com 1); o segundo é recusado na hora
+        limiter.acquire(Priority.USER).subscribe();
+        
+        assertThatThrownBy(() -> limiter.acquire(Priority.SCHEDULED).block(Duration.ofSeconds(1)))
+                .isInstanceOf(UpstreamRateLimitedException.class)
+                .hasMessageContaining("Fila");
+    }
+    
+    @Test
+    void givesUpAfterMaxWait() {
+        UpstreamRateLimiter limiter = limiter(1, 1, 10, Duration.ofMillis(100));
+        limiter.acquire(Priority.USER).block(Duration.ofSeconds(1));
+        
+        assertThatThrownBy(() -> limiter.acquire(Priority.USER).block(Duration.ofSeconds(2)))
+                .isInstanceOf(UpstreamRateLimitedException.class)
+                .hasMessageContaining("Tempo de espera");
+        
+        // O pedido que desistiu não fica ocupando a fila
+        @SuppressWarnings("unchecked")
+        Map<Priority, Integer> queued = (Map<Priority, Integer>) limiter.getStatus().get("queued");
+        assertThat(queued.get(Priority.USER)).isZero();
+    }
+    
+    @Test
+    void penalizeHoldsTokensUntilRetryAfterElapses() {
+        UpstreamRateLimiter limiter = limiter(10, 6000, 10, Duration.ofSeconds(5));
+        limiter.penalize(Duration.ofMillis(300));
+        
+        long start = System.nanoTime();
+        limiter.acquire(Priority.SCHEDULED).block(Duration.ofSeconds(2));
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertThat(waitedMillis).isGreaterThanOrEqualTo(250);
+    }
+    
+    @Test
+    void retriesAfterTooManyRequestsWhenRetryAfterFitsMaxWait() {
+        UpstreamRateLimiter limiter = limiter(10, 30, 10, Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction upstream = request -> Mono.fromSupplier(() -> calls.incrementAndGet() == 1
+                ? ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "1").build()
+                : ClientResponse.create(HttpStatus.OK).build());
+        
+        ClientResponse response = limiter.filter().filter(request(), upstream).block(Duration.ofSeconds(5));
+        
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(calls).hasValue(2);
+    }
+    
+    @Test
+    void doesNotRetryWhenRetryAfterExceedsMaxWait() {
+        UpstreamRateLimiter limiter = limiter(10, 30, 10, Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+        ExchangeFunction upstream = request -> Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "60").build();
+        });
+        
+        assertThatThrownBy(() -> limiter.filter().filter(request(), upstream).block(Duration.ofSeconds(5)))
+                .isInstanceOfSatisfying(UpstreamRateLimitedException.class,
+                        e -> assertThat(e.isRetryable()).isFalse());
+        assertThat(calls).hasValue(1);
+    }
+    
+    private static ClientRequest request() {
+        return ClientRequest.create(HttpMethod.GET, URI.create("https://api.coingecko.com/api/v3/ping")).build();
+    }
+    
+    private static Mono<Void> tracked(UpstreamRateLimiter limiter, Priority priority, String name, List<String> granted) {
+        return limiter.acquire(priority).doOnSuccess(ignored -> granted.add(name));
+    }
+    
+    private static UpstreamRateLimiter limiter(int capacity, int refillPerMinute, int maxQueue, Duration maxWait) {
+        UpstreamRateLimiter limiter = new UpstreamRateLimiter();
+        ReflectionTestUtils.setField(limiter, "capacity", capacity);
+        ReflectionTestUtils.setField(limiter, "refillPerMinute", refillPerMinute);
+        ReflectionTestUtils.setField(limiter, "maxQueue", maxQueue);
+        ReflectionTestUtils.setField(limiter, "maxWait", maxWait);
+        ReflectionTestUtils.setField(limiter, "maxRetries", 1);
+        ReflectionTestUtils.setField(limiter, "defaultRetryAfter", Duration.ofSeconds(20));
+        limiter.init();
+        return limiter;
+    }
+}
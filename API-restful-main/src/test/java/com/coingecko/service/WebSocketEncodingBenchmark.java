@@ -0,0 +1,222 @@
+package com.coingecko.service;
+
+import com.coingecko.dto.CryptoTick;
+import com.coingecko.model.Crypto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes alocados por broadcast: o {@link WebSocketService} atual (frame escrito pelo
+ * {@link WebSocketMessageEncoder}, carga {@code byte[]} enviada sem nova conversão) contra
+ * {@link LegacyPublisher}, cópia do código de envio anterior (Map por frame, ObjectMapper
+ * próprio, {@code writeValueAsString} e {@code convertAndSend} da String).
+ * Há inscritos no tópico geral e em {@code /topic/crypto/*}, então um ciclo de market_tick
+ * envia o frame geral e um frame por moeda. O canal do template descarta as mensagens.
+ * Rodar pelo main (classpath de teste); o GCProfiler informa a alocação por operação
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketEncodingBenchmark {
+    
+    @Param({"1", "250"})
+    private int coins;
+    
+    private final WebSocketService webSocketService = new WebSocketService();
+    private LegacyPublisher legacyPublisher;
+    private List<Crypto> cryptos;
+    
+    @Setup
+    public void setUp() {
+        // Mesmos conversores que o Spring registra no template do broker
+        SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> true);
+        template.setMessageConverter(new CompositeMessageConverter(List.of(
+                new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+        
+        SubscriptionTracker subscriptionTracker = new SubscriptionTracker();
+        subscribe(subscriptionTracker, "sub-0", "/topic/crypto-updates");
+        subscribe(subscriptionTracker, "sub-1", "/topic/crypto/*");
+        
+        // ObjectMapper como o do Spring Boot (módulos registrados, datas ISO)
+        WebSocketMessageEncoder encoder = new WebSocketMessageEncoder();
+        ReflectionTestUtils.setField(encoder, "objectMapper", Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(webSocketService, "messagingTemplate", template);
+        ReflectionTestUtils.setField(webSocketService, "subscriptionTracker", subscriptionTracker);
+        ReflectionTestUtils.setField(webSocketService, "encoder", encoder);
+        
+        legacyPublisher = new LegacyPublisher(template, subscriptionTracker);
+        
+        // Sem createdAt/updatedAt: o ObjectMapper anterior (sem o módulo de datas) não serializa
+        // LocalDateTime, então crypto_update só funcionava com as datas nulas
+        cryptos = new ArrayList<>(coins);
+        for (int i = 0; i < coins; i++) {
+            Crypto crypto = new Crypto();
+            crypto.setId((long) i + 1);
+            crypto.setSymbol("C" + i);
+            crypto.setName("Coin " + i);
+            crypto.setCurrentPrice(new BigDecimal(1000 + i + ".12345678"));
+            crypto.setMarketCap(BigDecimal.valueOf(1_000_000_000L + i * 7919L));
+            crypto.setVolume24h(new BigDecimal(50_000_000L + i * 131L + ".25"));
+            crypto.setChange24h(new BigDecimal("-" + (i % 9) + ".31"));
+            crypto.setImageUrl("https://assets.coingecko.com/coins/images/" + i + "/large/coin.png");
+            cryptos.add(crypto);
+        }
+    }
+    
+    @Benchmark
+    public void marketTickBefore() {
+        legacyPublisher.sendMarketTick(cryptos);
+    }
+    
+    @Benchmark
+    public void marketTickAfter() {
+        webSocketService.sendMarketTick(cryptos);
+    }
+    
+    @Benchmark
+    public void cryptoUpdateBefore() {
+        legacyPublisher.sendCryptoUpdate(cryptos.get(0));
+    }
+    
+    @Benchmark
+    public void cryptoUpdateAfter() {
+        webSocketService.sendCryptoUpdate(cryptos.get(0));
+    }
+    
+    private static void subscribe(SubscriptionTracker tracker, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("benchmark");
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        tracker.onSubscribe(new SessionSubscribeEvent(tracker, MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders())));
+    }
+    
+    /**
+     * Envio de crypto_update e market_tick como era antes do {@link WebSocketMessageEncoder}
+     * (mesmo código, sem os contadores e os logs).
+     */
+    static final class LegacyPublisher {
+        
+        private static final String WEBSOCKET_TOPIC = "/topic/crypto-updates";
+        private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+        
+        private final SimpMessagingTemplate messagingTemplate;
+        private final SubscriptionTracker subscriptionTracker;
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        
+        LegacyPublisher(SimpMessagingTemplate messagingTemplate, SubscriptionTracker subscriptionTracker) {
+            this.messagingTemplate = messagingTemplate;
+            this.subscriptionTracker = subscriptionTracker;
+        }
+        
+        void sendCryptoUpdate(Crypto crypto) {
+            try {
+                boolean toAll = subscriptionTracker.hasSubscribers(WEBSOCKET_TOPIC);
+                String symbolTopic = crypto.getSymbol() != null ? WebSocketService.cryptoTopic(crypto.getSymbol()) : null;
+                boolean toSymbol = symbolTopic != null && subscriptionTracker.hasSubscribers(symbolTopic);
+                if (!toAll && !toSymbol) {
+                    return;
+                }
+                
+                Map<String, Object> update = new HashMap<>();
+                update.put("type", "crypto_update");
+                update.put("timestamp", LocalDateTime.now().format(ISO_FORMATTER));
+                update.put("data", crypto);
+                
+                String message = objectMapper.writeValueAsString(update);
+                if (toAll) {
+                    messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, message);
+                }
+                if (toSymbol) {
+                    messagingTemplate.convertAndSend(symbolTopic, message);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        void sendMarketTick(List<Crypto> cryptos) {
+            if (cryptos.isEmpty()) {
+                return;
+            }
+            try {
+                String timestamp = LocalDateTime.now().format(ISO_FORMATTER);
+                
+                if (subscriptionTracker.hasSubscribers(WEBSOCKET_TOPIC)) {
+                    List<CryptoTick> rows = new ArrayList<>(cryptos.size());
+                    for (Crypto crypto : cryptos) {
+                        rows.add(CryptoTick.of(crypto));
+                    }
+                    messagingTemplate.convertAndSend(WEBSOCKET_TOPIC, objectMapper.writeValueAsString(tickFrame(timestamp, rows)));
+                }
+                
+                for (Crypto crypto : cryptos) {
+                    if (crypto.getSymbol() == null) {
+                        continue;
+                    }
+                    String symbolTopic = WebSocketService.cryptoTopic(crypto.getSymbol());
+                    if (subscriptionTracker.hasSubscribers(symbolTopic)) {
+                        messagingTemplate.convertAndSend(symbolTopic,
+                                objectMapper.writeValueAsString(tickFrame(timestamp, List.of(CryptoTick.of(crypto)))));
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        
+        private static Map<String, Object> tickFrame(String timestamp, List<CryptoTick> rows) {
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("type", "market_tick");
+            frame.put("timestamp", timestamp);
+            frame.put("fields", CryptoTick.FIELDS);
+            frame.put("rows", rows);
+            return frame;
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WebSocketEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
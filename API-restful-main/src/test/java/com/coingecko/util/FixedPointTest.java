@@ -0,0 +1,102 @@
+package com.coingecko.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FixedPointTest {
+    
+    @Test
+    void toRawRoundsHalfUpBeyondEighthDecimal() {
+        assertThat(FixedPoint.toRaw(new BigDecimal("1.000000005"))).isEqualTo(100_000_001L);
+        assertThat(FixedPoint.toRaw(new BigDecimal("1.000000004999"))).isEqualTo(100_000_000L);
+        assertThat(FixedPoint.toRaw(new BigDecimal("-1.000000005"))).isEqualTo(-100_000_001L);
+        assertThat(FixedPoint.toRaw(new BigDecimal("12345.6789"))).isEqualTo(1_234_567_890_000L);
+    }
+    
+    @Test
+    void toRawOverflowThrows() {
+        // Maior parte inteira representável: Long.MAX_VALUE / 10^8 = 92233720368
+        assertThat(FixedPoint.toRaw(new BigDecimal("92233720368.54775807"))).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> FixedPoint.toRaw(new BigDecimal("92233720368.54775808")))
+                .isInstanceOf(ArithmeticException.class);
+    }
+    
+    @Test
+    void roundTripsThroughBigDecimal() {
+        BigDecimal value = new BigDecimal("67123.45678901");
+        
+        assertThat(FixedPoint.of(value).toBigDecimal()).isEqualTo(value);
+        assertThat(FixedPoint.of(value).toString()).isEqualTo("67123.45678901");
+    }
+    
+    @Test
+    void multiplyRawRoundsHalfUpLikeBigDecimal() {
+        // 0.00000001 * 0.5 = 0.000000005 -> 0.00000001
+        assertThat(FixedPoint.multiplyRaw(1, 50_000_000L)).isEqualTo(1);
+        // 0.00000001 * 0.49999999 -> 0
+        assertThat(FixedPoint.multiplyRaw(1, 49_999_999L)).isZero();
+        // Sinal aplicado à magnitude: -0.000000005 -> -0.00000001
+        assertThat(FixedPoint.multiplyRaw(-1, 50_000_000L)).isEqualTo(-1);
+        assertThat(FixedPoint.multiplyRaw(-150_000_000L, -200_000_000L)).isEqualTo(300_000_000L);
+        assertThat(FixedPoint.multiplyRaw(0, Long.MAX_VALUE)).isZero();
+    }
+    
+    @Test
+    void multiplyRawMatchesBigDecimalForRandomOperands() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            // Quantidades e preços até 10^5, com 8 casas: o produto (até 10^10) cabe em um long
+            long quantity = random.nextLong(10_000_000_000_000L) * (random.nextBoolean() ? 1 : -1);
+            long price = random.nextLong(10_000_000_000_000L);
+            
+            BigDecimal expected = FixedPoint.toBigDecimal(quantity).multiply(FixedPoint.toBigDecimal(price))
+                    .setScale(FixedPoint.SCALE, RoundingMode.HALF_UP);
+            
+            assertThat(FixedPoint.multiplyRaw(quantity, price))
+                    .as("%s x %s", FixedPoint.toBigDecimal(quantity), FixedPoint.toBigDecimal(price))
+                    .isEqualTo(expected.unscaledValue().longValueExact());
+        }
+    }
+    
+    @Test
+    void multiplyRawOverflowThrows() {
+        long big = FixedPoint.toRaw(new BigDecimal("10000000"));
+        
+        assertThatThrownBy(() -> FixedPoint.multiplyRaw(big, big)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> FixedPoint.multiplyRaw(Long.MAX_VALUE, 2 * FixedPoint.ONE)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> FixedPoint.multiplyRaw(Long.MIN_VALUE, FixedPoint.ONE)).isInstanceOf(ArithmeticException.class);
+        // Estouro só na soma das parcelas (parte inteira x fração)
+        assertThatThrownBy(() -> FixedPoint.multiplyRaw(Long.MAX_VALUE, FixedPoint.ONE + 99_999_999L))
+                .isInstanceOf(ArithmeticException.class);
+    }
+    
+    @Test
+    void multiplyRawAtTheEdgeOfTheRange() {
+        assertThat(FixedPoint.multiplyRaw(Long.MAX_VALUE, FixedPoint.ONE)).isEqualTo(Long.MAX_VALUE);
+        assertThat(FixedPoint.multiplyRaw(-Long.MAX_VALUE, FixedPoint.ONE)).isEqualTo(-Long.MAX_VALUE);
+    }
+    
+    @Test
+    void addRawOverflowThrows() {
+        assertThat(FixedPoint.addRaw(Long.MAX_VALUE - 1, 1)).isEqualTo(Long.MAX_VALUE);
+        assertThatThrownBy(() -> FixedPoint.addRaw(Long.MAX_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+    }
+    
+    @Test
+    void instanceArithmeticAndOrdering() {
+        FixedPoint price = FixedPoint.of(new BigDecimal("2.5"));
+        FixedPoint quantity = FixedPoint.of(new BigDecimal("4"));
+        
+        assertThat(price.multiply(quantity)).isEqualTo(FixedPoint.of(BigDecimal.TEN));
+        assertThat(price.add(quantity).toBigDecimal()).isEqualByComparingTo("6.5");
+        assertThat(price.compareTo(quantity)).isNegative();
+        assertThat(FixedPoint.ZERO.signum()).isZero();
+        assertThat(FixedPoint.of(new BigDecimal("2.50"))).isEqualTo(price).hasSameHashCodeAs(price);
+    }
+}
@@ -0,0 +1,103 @@
+package com.coingecko.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Valor de mercado (soma de quantidade x preço por portfólio) de 1M posições: BigDecimal
+ * contra {@link FixedPoint} sobre valores brutos, como no laço de reavaliação do HoldingsIndex.
+ * Rodar pelo main (classpath de teste); o GCProfiler informa a alocação por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValuationBenchmark {
+    
+    // Moedas distintas: as posições apontam para uma tabela de preços, como no índice
+    private static final int CRYPTOS = 5_000;
+    private static final int POSITIONS_PER_PORTFOLIO = 10;
+    
+    @Param({"1000000"})
+    private int positions;
+    
+    private int[] cryptoOf;
+    private BigDecimal[] quantities;
+    private BigDecimal[] prices;
+    private long[] rawQuantities;
+    private long[] rawPrices;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        cryptoOf = new int[positions];
+        quantities = new BigDecimal[positions];
+        rawQuantities = new long[positions];
+        for (int i = 0; i < positions; i++) {
+            cryptoOf[i] = random.nextInt(CRYPTOS);
+            rawQuantities[i] = random.nextLong(1_000 * FixedPoint.ONE);
+            quantities[i] = FixedPoint.toBigDecimal(rawQuantities[i]);
+        }
+        
+        prices = new BigDecimal[CRYPTOS];
+        rawPrices = new long[CRYPTOS];
+        for (int i = 0; i < CRYPTOS; i++) {
+            rawPrices[i] = random.nextLong(100_000 * FixedPoint.ONE);
+            prices[i] = FixedPoint.toBigDecimal(rawPrices[i]);
+        }
+    }
+    
+    @Benchmark
+    public BigDecimal[] bigDecimal() {
+        BigDecimal[] totals = new BigDecimal[positions / POSITIONS_PER_PORTFOLIO];
+        for (int portfolio = 0; portfolio < totals.length; portfolio++) {
+            BigDecimal total = BigDecimal.ZERO;
+            int end = (portfolio + 1) * POSITIONS_PER_PORTFOLIO;
+            for (int i = portfolio * POSITIONS_PER_PORTFOLIO; i < end; i++) {
+                total = total.add(quantities[i].multiply(prices[cryptoOf[i]]));
+            }
+            totals[portfolio] = total;
+        }
+        return totals;
+    }
+    
+    @Benchmark
+    public long[] fixedPoint() {
+        long[] totals = new long[positions / POSITIONS_PER_PORTFOLIO];
+        for (int portfolio = 0; portfolio < totals.length; portfolio++) {
+            long total = 0;
+            int end = (portfolio + 1) * POSITIONS_PER_PORTFOLIO;
+            for (int i = portfolio * POSITIONS_PER_PORTFOLIO; i < end; i++) {
+                total = FixedPoint.addRaw(total, FixedPoint.multiplyRaw(rawQuantities[i], rawPrices[cryptoOf[i]]));
+            }
+            totals[portfolio] = total;
+        }
+        return totals;
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ValuationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}